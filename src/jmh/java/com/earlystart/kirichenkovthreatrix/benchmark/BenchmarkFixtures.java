@@ -0,0 +1,109 @@
+package com.earlystart.kirichenkovthreatrix.benchmark;
+
+import com.earlystart.kirichenkovthreatrix.controller.GraphQLController;
+import com.earlystart.kirichenkovthreatrix.dao.InMemoryUserDao;
+import com.earlystart.kirichenkovthreatrix.dao.UserDao;
+import com.earlystart.kirichenkovthreatrix.graphql.AdmissionControlInstrumentation;
+import com.earlystart.kirichenkovthreatrix.graphql.CachingPreparsedDocumentProvider;
+import com.earlystart.kirichenkovthreatrix.graphql.MetricsInstrumentation;
+import com.earlystart.kirichenkovthreatrix.graphql.PersistedQueryStore;
+import com.earlystart.kirichenkovthreatrix.graphql.UserSchema;
+import com.earlystart.kirichenkovthreatrix.model.User;
+import com.earlystart.kirichenkovthreatrix.service.user.LocalUserCacheInvalidationBus;
+import com.earlystart.kirichenkovthreatrix.service.user.LocalUserChangeBus;
+import com.earlystart.kirichenkovthreatrix.service.user.UserCache;
+import com.earlystart.kirichenkovthreatrix.service.user.UserChangeNotifier;
+import com.earlystart.kirichenkovthreatrix.service.user.UserChangeSubscriptions;
+import com.earlystart.kirichenkovthreatrix.service.user.UserDataLoaders;
+import com.earlystart.kirichenkovthreatrix.service.user.UserService;
+import com.earlystart.kirichenkovthreatrix.service.user.UserServiceImpl;
+import com.earlystart.kirichenkovthreatrix.service.validator.UserValidator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import graphql.schema.GraphQLSchema;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.task.SyncTaskExecutor;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Builds the GraphQL request path on top of an {@link InMemoryUserDao} holding a fixed set of users,
+ * so the benchmarks measure the service and GraphQL layers rather than the database.
+ */
+final class BenchmarkFixtures {
+    static final int MAX_USERS = 1000;
+
+    private BenchmarkFixtures() {
+    }
+
+    static List<User> users(int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> User.builder()
+                        .email("user" + i + "@example.com")
+                        .firstName("First" + i)
+                        .lastName("Last" + i)
+                        .organization("threatrix")
+                        .permissions("read,write")
+                        .build())
+                .toList();
+    }
+
+    static UserService userService() {
+        var userDao = userDao();
+        return userService(userDao, userCache(userDao));
+    }
+
+    static GraphQLController controller(long documentCacheSize) {
+        var userDao = userDao();
+        var userCache = userCache(userDao);
+        return new GraphQLController(
+                schema(userService(userDao, userCache)),
+                new CachingPreparsedDocumentProvider(documentCacheSize),
+                new SyncTaskExecutor(),
+                new UserDataLoaders(userCache, 100),
+                List.of(admissionControl(), new MetricsInstrumentation(new SimpleMeterRegistry())),
+                persistedQueries());
+    }
+
+    // Loaded from the build-time schema file, as in production.
+    static GraphQLSchema schema(UserService userService) {
+        try {
+            return UserSchema.load(UserSchema.readSdl(), userService, new ObjectMapper());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Production limits, but with a client budget the benchmark loop cannot exhaust.
+    private static AdmissionControlInstrumentation admissionControl() {
+        return new AdmissionControlInstrumentation(100, 10_000, 10, 20, 100_000, 10, Long.MAX_VALUE, Long.MAX_VALUE);
+    }
+
+    private static PersistedQueryStore persistedQueries() {
+        try {
+            return new PersistedQueryStore(new ObjectMapper(), new DefaultResourceLoader(), new SimpleMeterRegistry(), 1000, false, "");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static UserService userService(UserDao userDao, UserCache userCache) {
+        var changeBus = new LocalUserChangeBus();
+        return new UserServiceImpl(userDao, new UserValidator(), userCache, new UserChangeNotifier(userCache, changeBus),
+                new UserChangeSubscriptions(changeBus, Runnable::run, 256));
+    }
+
+    private static UserDao userDao() {
+        var userDao = new InMemoryUserDao(null, Duration.ZERO);
+        users(MAX_USERS).forEach(userDao::saveUser);
+        return userDao;
+    }
+
+    private static UserCache userCache(UserDao userDao) {
+        return new UserCache(userDao, new LocalUserCacheInvalidationBus(), MAX_USERS, Duration.ofMinutes(5), Duration.ofSeconds(30));
+    }
+}
@@ -0,0 +1,59 @@
+package com.earlystart.kirichenkovthreatrix.benchmark;
+
+import com.earlystart.kirichenkovthreatrix.controller.GraphQLController;
+import graphql.ExecutionResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A full {@code POST /graphql} request through {@link GraphQLController}: parse and validate (or a document
+ * cache hit) and execution against the stubbed user service. Writing the response is measured separately
+ * in {@link ResultSerializationBenchmark}.
+ * {@code documentCacheSize = 0} disables the document cache, so every request is parsed and validated.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GraphQLRequestBenchmark {
+    private static final Map<String, String> QUERIES = Map.of(
+            "getUserByEmail", "{ getUserByEmail(email: \"user0@example.com\") { email firstName lastName organization } }",
+            "getAllUsers", "{ getAllUsers(limit: 20) { email firstName lastName organization permissions } }");
+
+    @Param({"getUserByEmail", "getAllUsers"})
+    public String query;
+
+    @Param({"500", "0"})
+    public long documentCacheSize;
+
+    private GraphQLController controller;
+    private Map<String, Object> body;
+    private MockHttpServletRequest request;
+
+    @Setup
+    public void setUp() {
+        controller = BenchmarkFixtures.controller(documentCacheSize);
+        body = Map.of("query", QUERIES.get(query));
+        request = new MockHttpServletRequest("POST", "/graphql");
+    }
+
+    @Benchmark
+    public ExecutionResult execute() {
+        return controller.indexFromAnnotated(body, request).join();
+    }
+}
@@ -0,0 +1,74 @@
+package com.earlystart.kirichenkovthreatrix.benchmark;
+
+import com.earlystart.kirichenkovthreatrix.graphql.ExecutionResultHttpMessageConverter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import graphql.ExecutionResult;
+import graphql.GraphQL;
+import io.leangen.graphql.GraphQLSchemaGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Turning an executed list query into the response body: {@code ExecutionResult.toSpecification()}
+ * followed by Jackson serialization with the same defaults Spring Boot applies to its {@code ObjectMapper},
+ * against the streaming {@link ExecutionResultHttpMessageConverter} the controller responses go through.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResultSerializationBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int users;
+
+    private ExecutionResult result;
+    private ObjectMapper objectMapper;
+    private ExecutionResultHttpMessageConverter converter;
+
+    @Setup
+    public void setUp() {
+        var schema = new GraphQLSchemaGenerator()
+                .withOperationsFromSingleton(BenchmarkFixtures.userService())
+                .generate();
+        result = GraphQL.newGraphQL(schema).build()
+                .execute("{ getAllUsers(limit: " + users + ") { email firstName lastName organization permissions } }");
+        if (!result.getErrors().isEmpty()) {
+            throw new IllegalStateException("Benchmark query failed: " + result.getErrors());
+        }
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        converter = new ExecutionResultHttpMessageConverter(objectMapper);
+    }
+
+    @Benchmark
+    public Map<String, Object> toSpecification() {
+        return result.toSpecification();
+    }
+
+    @Benchmark
+    public void toSpecificationAndSerialize() throws IOException {
+        objectMapper.writeValue(OutputStream.nullOutputStream(), result.toSpecification());
+    }
+
+    @Benchmark
+    public void streamingWrite() throws IOException {
+        converter.write(result, OutputStream.nullOutputStream());
+    }
+}
@@ -0,0 +1,52 @@
+package com.earlystart.kirichenkovthreatrix.benchmark;
+
+import com.earlystart.kirichenkovthreatrix.graphql.UserSchema;
+import com.earlystart.kirichenkovthreatrix.service.user.UserService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import graphql.schema.GraphQLSchema;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building the schema on startup: SPQR generation from the annotated {@code UserServiceImpl} against
+ * parsing the build-time schema file and binding it to the service.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SchemaGenerationBenchmark {
+    private UserService userService;
+    private ObjectMapper objectMapper;
+    private String sdl;
+
+    @Setup
+    public void setUp() throws IOException {
+        userService = BenchmarkFixtures.userService();
+        objectMapper = new ObjectMapper();
+        sdl = UserSchema.readSdl();
+    }
+
+    @Benchmark
+    public GraphQLSchema generateSchema() {
+        return UserSchema.generate(userService);
+    }
+
+    @Benchmark
+    public GraphQLSchema loadSchema() {
+        return UserSchema.load(sdl, userService, objectMapper);
+    }
+}
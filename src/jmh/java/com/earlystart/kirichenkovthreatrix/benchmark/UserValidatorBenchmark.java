@@ -0,0 +1,43 @@
+package com.earlystart.kirichenkovthreatrix.benchmark;
+
+import com.earlystart.kirichenkovthreatrix.model.User;
+import com.earlystart.kirichenkovthreatrix.service.validator.UserValidator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import javax.validation.ValidationException;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserValidatorBenchmark {
+    private final UserValidator validator = new UserValidator();
+    private final User valid = User.builder().email("john.doe+test@example.com").build();
+    private final User invalid = User.builder().email("john.doe.example.com").build();
+
+    @Benchmark
+    public void validEmail() {
+        validator.validate(valid);
+    }
+
+    @Benchmark
+    public void invalidEmail(Blackhole blackhole) {
+        try {
+            validator.validate(invalid);
+        } catch (ValidationException e) {
+            blackhole.consume(e);
+        }
+    }
+}
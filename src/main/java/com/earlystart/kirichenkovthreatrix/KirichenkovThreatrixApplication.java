@@ -1,11 +1,19 @@
 package com.earlystart.kirichenkovthreatrix;
 
+import com.earlystart.kirichenkovthreatrix.config.StartupTimingLogger;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.data.cassandra.CassandraRepositoriesAutoConfiguration;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
 
-@SpringBootApplication
+// Repositories are registered by CassandraRepositoryConfig, depending on threatrix.storage.type.
+@SpringBootApplication(exclude = CassandraRepositoriesAutoConfiguration.class)
 public class KirichenkovThreatrixApplication {
     public static void main(String[] args) {
-        SpringApplication.run(KirichenkovThreatrixApplication.class, args);
+        var application = new SpringApplication(KirichenkovThreatrixApplication.class);
+        if (Boolean.getBoolean(StartupTimingLogger.TIMING_PROPERTY)) {
+            application.setApplicationStartup(new BufferingApplicationStartup(10_000));
+        }
+        application.run(args);
     }
 }
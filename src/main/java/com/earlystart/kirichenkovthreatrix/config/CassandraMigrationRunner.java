@@ -1,24 +1,108 @@
 package com.earlystart.kirichenkovthreatrix.config;
 
 import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.SimpleStatement;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.cognitor.cassandra.migration.Database;
 import org.cognitor.cassandra.migration.MigrationRepository;
 import org.cognitor.cassandra.migration.MigrationTask;
+import org.cognitor.cassandra.migration.collector.FailOnDuplicatesCollector;
+import org.cognitor.cassandra.migration.collector.ScriptCollector;
+import org.cognitor.cassandra.migration.collector.ScriptFile;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
 
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
 @Component
+@Order(0)
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "threatrix.storage.type", havingValue = "cassandra", matchIfMissing = true)
 public class CassandraMigrationRunner implements CommandLineRunner {
+    // Table in which cassandra-migration records the applied scripts.
+    private static final String MIGRATION_TABLE = "schema_migration";
+
+    // First script that removes what the users_by_organization backfill replaces: the organization_idx index.
+    static final int AFTER_BACKFILL_VERSION = 4;
+
+    private final CqlSession session;
+
     @Value("${spring.cassandra.keyspace-name}")
     private String keyspaceName;
 
+    @Value("${threatrix.cassandra.migrations.skip-if-current:true}")
+    private boolean skipIfCurrent;
+
+    @Value("${threatrix.backfill.users-by-organization:false}")
+    private boolean backfillPending;
+
+    // With a backfill pending, scripts from AFTER_BACKFILL_VERSION on are held back until it has finished.
     @Override
     public void run(String... args) {
-        var session = CqlSession.builder().build();
-        Database database = new Database(session, keyspaceName);
-        MigrationTask migration = new MigrationTask(database, new MigrationRepository());
+        migrate(backfillPending ? AFTER_BACKFILL_VERSION - 1 : Integer.MAX_VALUE);
+    }
+
+    /**
+     * Applies the scripts held back while the {@code users_by_organization} backfill was pending.
+     */
+    public void migrateAfterBackfill() {
+        migrate(Integer.MAX_VALUE);
+    }
+
+    private void migrate(int maxVersion) {
+        long start = System.nanoTime();
+        var repository = repository(maxVersion);
+        if (skipIfCurrent) {
+            int applied = appliedVersion();
+            if (applied >= repository.getLatestVersion()) {
+                log.info("Keyspace {} is at schema version {}, skipped migrations in {} ms",
+                        keyspaceName, applied, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                return;
+            }
+        }
+        // Creates the migration tables if needed and takes the migration lead, so only run it when there is work to do.
+        Database database = new Database(new NonClosingCqlSession(session), keyspaceName)
+                .setExecutionProfileName(CassandraSessionConfig.SCHEMA_PROFILE);
+        MigrationTask migration = new MigrationTask(database, repository);
         migration.migrate();
-        session.close();
+        log.info("Migrated keyspace {} to schema version {} in {} ms",
+                keyspaceName, repository.getLatestVersion(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    static MigrationRepository repository(int maxVersion) {
+        var scripts = new FailOnDuplicatesCollector();
+        return new MigrationRepository(MigrationRepository.DEFAULT_SCRIPT_PATH, new ScriptCollector() {
+            @Override
+            public void collect(ScriptFile script) {
+                if (script.getVersion() <= maxVersion) {
+                    scripts.collect(script);
+                }
+            }
+
+            @Override
+            public Collection<ScriptFile> getScriptFiles() {
+                return scripts.getScriptFiles();
+            }
+        });
+    }
+
+    private int appliedVersion() {
+        var tableExists = session.getMetadata().getKeyspace(keyspaceName)
+                .flatMap(keyspace -> keyspace.getTable(MIGRATION_TABLE))
+                .isPresent();
+        if (!tableExists) {
+            return 0;
+        }
+        var row = session.execute(SimpleStatement.newInstance(
+                        "SELECT version FROM " + keyspaceName + "." + MIGRATION_TABLE
+                                + " WHERE applied_successful = true ORDER BY version DESC LIMIT 1"))
+                .one();
+        return row == null ? 0 : row.getInt("version");
     }
-}
\ No newline at end of file
+}
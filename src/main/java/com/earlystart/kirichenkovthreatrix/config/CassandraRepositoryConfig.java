@@ -0,0 +1,17 @@
+package com.earlystart.kirichenkovthreatrix.config;
+
+import com.earlystart.kirichenkovthreatrix.dao.InMemoryUserDao;
+import com.earlystart.kirichenkovthreatrix.dao.UserDao;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.cassandra.repository.config.EnableCassandraRepositories;
+
+/**
+ * Registers the Cassandra-backed {@link UserDao} under the same property that registers {@link InMemoryUserDao}
+ * otherwise, so exactly one of them exists. Spring Boot's repository auto-configuration is excluded for this.
+ */
+@Configuration
+@ConditionalOnProperty(name = "threatrix.storage.type", havingValue = "cassandra", matchIfMissing = true)
+@EnableCassandraRepositories(basePackageClasses = UserDao.class)
+public class CassandraRepositoryConfig {
+}
@@ -0,0 +1,61 @@
+package com.earlystart.kirichenkovthreatrix.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.cassandra.DriverConfigLoaderBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+import static com.datastax.oss.driver.api.core.config.DefaultDriverOption.CONNECTION_POOL_LOCAL_SIZE;
+import static com.datastax.oss.driver.api.core.config.DefaultDriverOption.REQUEST_DEFAULT_IDEMPOTENCE;
+import static com.datastax.oss.driver.api.core.config.DefaultDriverOption.REQUEST_TIMEOUT;
+import static com.datastax.oss.driver.api.core.config.DefaultDriverOption.SPECULATIVE_EXECUTION_DELAY;
+import static com.datastax.oss.driver.api.core.config.DefaultDriverOption.SPECULATIVE_EXECUTION_MAX;
+import static com.datastax.oss.driver.api.core.config.DefaultDriverOption.SPECULATIVE_EXECUTION_POLICY_CLASS;
+
+/**
+ * Tunes the single application {@code CqlSession} built by Spring Boot from {@code spring.cassandra.*},
+ * which the repositories, the DAO fragments and the migration runner all share.
+ * <p>
+ * The default profile serves point and range reads: it uses the read timeout and speculative
+ * executions, which the driver only sends for idempotent statements. Every statement this service
+ * issues is a plain upsert, delete or read, so idempotence is the default; lightweight transactions
+ * opt out explicitly. Writes, full-table scans and schema changes run in their own profiles.
+ */
+@Configuration
+public class CassandraSessionConfig {
+    public static final String WRITE_PROFILE = "write";
+    public static final String SCAN_PROFILE = "scan";
+    public static final String SCHEMA_PROFILE = "schema";
+
+    @Bean
+    public DriverConfigLoaderBuilderCustomizer scyllaDriverConfigCustomizer(
+            @Value("${threatrix.cassandra.pool.local-size:1}") int poolLocalSize,
+            @Value("${threatrix.cassandra.speculative-execution.max-executions:2}") int speculativeExecutions,
+            @Value("${threatrix.cassandra.speculative-execution.delay:50ms}") Duration speculativeDelay,
+            @Value("${threatrix.cassandra.timeouts.read:500ms}") Duration readTimeout,
+            @Value("${threatrix.cassandra.timeouts.write:1s}") Duration writeTimeout,
+            @Value("${threatrix.cassandra.timeouts.scan:30s}") Duration scanTimeout,
+            @Value("${threatrix.cassandra.timeouts.schema:60s}") Duration schemaTimeout) {
+        return builder -> builder
+                .withInt(CONNECTION_POOL_LOCAL_SIZE, poolLocalSize)
+                .withBoolean(REQUEST_DEFAULT_IDEMPOTENCE, true)
+                .withDuration(REQUEST_TIMEOUT, readTimeout)
+                .withString(SPECULATIVE_EXECUTION_POLICY_CLASS, "ConstantSpeculativeExecutionPolicy")
+                .withInt(SPECULATIVE_EXECUTION_MAX, speculativeExecutions)
+                .withDuration(SPECULATIVE_EXECUTION_DELAY, speculativeDelay)
+                .startProfile(WRITE_PROFILE)
+                .withDuration(REQUEST_TIMEOUT, writeTimeout)
+                .withString(SPECULATIVE_EXECUTION_POLICY_CLASS, "NoSpeculativeExecutionPolicy")
+                .endProfile()
+                .startProfile(SCAN_PROFILE)
+                .withDuration(REQUEST_TIMEOUT, scanTimeout)
+                .withString(SPECULATIVE_EXECUTION_POLICY_CLASS, "NoSpeculativeExecutionPolicy")
+                .endProfile()
+                .startProfile(SCHEMA_PROFILE)
+                .withDuration(REQUEST_TIMEOUT, schemaTimeout)
+                .withString(SPECULATIVE_EXECUTION_POLICY_CLASS, "NoSpeculativeExecutionPolicy")
+                .endProfile();
+    }
+}
@@ -0,0 +1,19 @@
+package com.earlystart.kirichenkovthreatrix.config;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+
+@RestControllerAdvice
+public class ExecutionRejectedExceptionHandler {
+
+    @ExceptionHandler(RejectedExecutionException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public Map<String, String> handleRejectedExecution(RejectedExecutionException ex) {
+        return Map.of("error", "Server is overloaded, retry later");
+    }
+}
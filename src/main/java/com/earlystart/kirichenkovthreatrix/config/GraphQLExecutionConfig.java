@@ -0,0 +1,64 @@
+package com.earlystart.kirichenkovthreatrix.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * Chooses where GraphQL operations run. In {@code sync} mode they run on the servlet thread,
+ * in {@code async} mode the servlet thread is released and the operation (including its
+ * blocking resolvers) runs on a dedicated executor.
+ */
+@Slf4j
+@Configuration
+public class GraphQLExecutionConfig {
+
+    public enum ExecutionMode {
+        SYNC,
+        ASYNC
+    }
+
+    @Bean(name = "graphQLExecutor")
+    public Executor graphQLExecutor(
+            @Value("${threatrix.graphql.execution.mode:sync}") ExecutionMode mode,
+            @Value("${threatrix.graphql.execution.virtual-threads:true}") boolean virtualThreads,
+            @Value("${threatrix.graphql.execution.pool-size:64}") int poolSize,
+            @Value("${threatrix.graphql.execution.queue-capacity:1000}") int queueCapacity) {
+        if (mode == ExecutionMode.SYNC) {
+            return new SyncTaskExecutor();
+        }
+        if (virtualThreads) {
+            var executor = newVirtualThreadPerTaskExecutor();
+            if (executor != null) {
+                log.info("GraphQL operations run asynchronously on virtual threads");
+                return executor;
+            }
+            log.warn("Virtual threads are not available on Java {}, falling back to a thread pool",
+                    Runtime.version().feature());
+        }
+        var executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("graphql-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.initialize();
+        log.info("GraphQL operations run asynchronously on a pool of {} threads", poolSize);
+        return executor;
+    }
+
+    // Looked up reflectively so the service still builds and runs on Java 17.
+    private static Executor newVirtualThreadPerTaskExecutor() {
+        try {
+            return (Executor) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.earlystart.kirichenkovthreatrix.config;
+
+import com.earlystart.kirichenkovthreatrix.graphql.UserSchema;
+import com.earlystart.kirichenkovthreatrix.service.user.UserService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import graphql.schema.GraphQLSchema;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds the GraphQL schema. In {@code sdl} mode it is loaded from the schema file generated at build
+ * time; {@code reflection} mode generates it from the service annotations with SPQR, which is slower
+ * to start but does not depend on the file being up to date.
+ */
+@Slf4j
+@Configuration
+public class GraphQLSchemaConfig {
+
+    public enum SchemaSource {
+        SDL,
+        REFLECTION
+    }
+
+    @Bean
+    public GraphQLSchema graphQLSchema(UserService userService,
+                                       ObjectMapper objectMapper,
+                                       @Value("${threatrix.graphql.schema.source:sdl}") SchemaSource source) throws IOException {
+        long start = System.nanoTime();
+        var sdl = source == SchemaSource.SDL ? UserSchema.readSdl() : null;
+        if (source == SchemaSource.SDL && sdl == null) {
+            log.warn("{} is missing, generating the GraphQL schema by reflection", UserSchema.SDL_LOCATION);
+        }
+        var schema = sdl == null
+                ? UserSchema.generate(userService)
+                : UserSchema.load(sdl, userService, objectMapper);
+        log.info("Built the GraphQL schema from {} in {} ms", sdl == null ? "annotations" : UserSchema.SDL_LOCATION,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return schema;
+    }
+}
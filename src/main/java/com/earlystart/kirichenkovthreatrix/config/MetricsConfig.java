@@ -0,0 +1,58 @@
+package com.earlystart.kirichenkovthreatrix.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.config.MeterFilter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.cassandra.CqlSessionBuilderCustomizer;
+import org.springframework.boot.autoconfigure.cassandra.DriverConfigLoaderBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.List;
+
+import static com.datastax.oss.driver.api.core.config.DefaultDriverOption.METRICS_FACTORY_CLASS;
+import static com.datastax.oss.driver.api.core.config.DefaultDriverOption.METRICS_ID_GENERATOR_CLASS;
+import static com.datastax.oss.driver.api.core.config.DefaultDriverOption.METRICS_ID_GENERATOR_PREFIX;
+import static com.datastax.oss.driver.api.core.config.DefaultDriverOption.METRICS_NODE_ENABLED;
+import static com.datastax.oss.driver.api.core.config.DefaultDriverOption.METRICS_SESSION_ENABLED;
+
+/**
+ * Publishes driver and query metrics to the application {@link MeterRegistry}. The driver reports
+ * session-wide request latency and throttling plus per-node pool usage under {@code cassandra.*};
+ * {@link QueryMetricsRequestTracker} adds latency per query shape.
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public DriverConfigLoaderBuilderCustomizer driverMetricsConfigCustomizer() {
+        return builder -> builder
+                .withString(METRICS_FACTORY_CLASS, "MicrometerMetricsFactory")
+                .withString(METRICS_ID_GENERATOR_CLASS, "TaggingMetricIdGenerator")
+                .withString(METRICS_ID_GENERATOR_PREFIX, "cassandra")
+                .withStringList(METRICS_SESSION_ENABLED, List.of(
+                        "connected-nodes", "cql-requests", "cql-client-timeouts", "throttling.delay", "throttling.errors"))
+                .withStringList(METRICS_NODE_ENABLED, List.of(
+                        "pool.open-connections", "pool.in-flight", "pool.available-streams", "pool.orphaned-streams",
+                        "errors.request.unavailables", "errors.request.read-timeouts", "errors.request.write-timeouts",
+                        "speculative-executions"));
+    }
+
+    @Bean
+    public CqlSessionBuilderCustomizer driverMetricsSessionCustomizer(
+            MeterRegistry registry,
+            @Value("${threatrix.cassandra.slow-query-threshold:0ms}") Duration slowQueryThreshold) {
+        return builder -> builder
+                .withMetricRegistry(registry)
+                .addRequestTracker(new QueryMetricsRequestTracker(registry, slowQueryThreshold));
+    }
+
+    // Operation names come from clients, so only the first ones seen get their own request and error series.
+    @Bean
+    public MeterFilter graphQLOperationTagLimit(
+            @Value("${threatrix.graphql.metrics.max-operations:100}") int maxOperations) {
+        return MeterFilter.maximumAllowableTags(
+                "graphql", "operation", maxOperations, MeterFilter.deny());
+    }
+}
@@ -0,0 +1,88 @@
+package com.earlystart.kirichenkovthreatrix.config;
+
+import com.datastax.oss.driver.api.core.CqlIdentifier;
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.context.DriverContext;
+import com.datastax.oss.driver.api.core.metadata.Metadata;
+import com.datastax.oss.driver.api.core.metrics.Metrics;
+import com.datastax.oss.driver.api.core.session.Request;
+import com.datastax.oss.driver.api.core.type.reflect.GenericType;
+import lombok.RequiredArgsConstructor;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Hands the application session to code that closes whatever session it is given
+ * (cassandra-migration closes it when a migration run ends) without shutting it down.
+ */
+@RequiredArgsConstructor
+class NonClosingCqlSession implements CqlSession {
+    private final CqlSession delegate;
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public Metadata getMetadata() {
+        return delegate.getMetadata();
+    }
+
+    @Override
+    public boolean isSchemaMetadataEnabled() {
+        return delegate.isSchemaMetadataEnabled();
+    }
+
+    @Override
+    public CompletionStage<Metadata> setSchemaMetadataEnabled(Boolean newValue) {
+        return delegate.setSchemaMetadataEnabled(newValue);
+    }
+
+    @Override
+    public CompletionStage<Metadata> refreshSchemaAsync() {
+        return delegate.refreshSchemaAsync();
+    }
+
+    @Override
+    public CompletionStage<Boolean> checkSchemaAgreementAsync() {
+        return delegate.checkSchemaAgreementAsync();
+    }
+
+    @Override
+    public DriverContext getContext() {
+        return delegate.getContext();
+    }
+
+    @Override
+    public Optional<CqlIdentifier> getKeyspace() {
+        return delegate.getKeyspace();
+    }
+
+    @Override
+    public Optional<Metrics> getMetrics() {
+        return delegate.getMetrics();
+    }
+
+    @Override
+    public <RequestT extends Request, ResultT> ResultT execute(RequestT request, GenericType<ResultT> resultType) {
+        return delegate.execute(request, resultType);
+    }
+
+    @Override
+    public CompletionStage<Void> closeFuture() {
+        return delegate.closeFuture();
+    }
+
+    @Override
+    public CompletionStage<Void> closeAsync() {
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletionStage<Void> forceCloseAsync() {
+        return CompletableFuture.completedFuture(null);
+    }
+}
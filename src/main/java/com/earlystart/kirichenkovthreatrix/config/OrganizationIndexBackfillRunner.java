@@ -0,0 +1,34 @@
+package com.earlystart.kirichenkovthreatrix.config;
+
+import com.earlystart.kirichenkovthreatrix.dao.UserDao;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * One-time copy of existing users into {@code users_by_organization}. Enable with
+ * {@code threatrix.backfill.users-by-organization=true} for a single start after upgrading.
+ * Once the copy has finished, the migrations held back for it are applied, which drop the
+ * {@code organization_idx} index the table replaces.
+ */
+@Slf4j
+@Component
+@Order(1)
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "threatrix.backfill.users-by-organization", havingValue = "true")
+public class OrganizationIndexBackfillRunner implements CommandLineRunner {
+    private final UserDao userDao;
+    private final ObjectProvider<CassandraMigrationRunner> migrationRunner;
+
+    @Override
+    public void run(String... args) {
+        log.info("Backfilling users_by_organization");
+        long indexed = userDao.backfillOrganizationIndex();
+        log.info("Backfilled {} users into users_by_organization", indexed);
+        migrationRunner.ifAvailable(CassandraMigrationRunner::migrateAfterBackfill);
+    }
+}
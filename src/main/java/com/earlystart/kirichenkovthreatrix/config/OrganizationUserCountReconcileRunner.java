@@ -0,0 +1,30 @@
+package com.earlystart.kirichenkovthreatrix.config;
+
+import com.earlystart.kirichenkovthreatrix.dao.UserDao;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Recounts the users of every organization and repairs the maintained counters that drifted. The first
+ * run after an upgrade also fills the counters for existing users. Counter corrections are deltas, so
+ * enable with {@code threatrix.organization-counts.reconcile=true} on a single instance only.
+ */
+@Slf4j
+@Component
+@Order(3)
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "threatrix.organization-counts.reconcile", havingValue = "true")
+public class OrganizationUserCountReconcileRunner implements CommandLineRunner {
+    private final UserDao userDao;
+
+    @Override
+    public void run(String... args) {
+        log.info("Reconciling organization user counts");
+        long corrected = userDao.reconcileOrganizationUserCounts();
+        log.info("Reconciled organization user counts, corrected {}", corrected);
+    }
+}
@@ -0,0 +1,97 @@
+package com.earlystart.kirichenkovthreatrix.config;
+
+import com.datastax.oss.driver.api.core.config.DriverExecutionProfile;
+import com.datastax.oss.driver.api.core.cql.BatchStatement;
+import com.datastax.oss.driver.api.core.cql.BatchableStatement;
+import com.datastax.oss.driver.api.core.cql.BoundStatement;
+import com.datastax.oss.driver.api.core.cql.SimpleStatement;
+import com.datastax.oss.driver.api.core.metadata.Node;
+import com.datastax.oss.driver.api.core.session.Request;
+import com.datastax.oss.driver.api.core.tracker.RequestTracker;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.LinkedHashSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times every CQL request in {@code cassandra.query}, tagged by query shape (the CQL text, with bind
+ * markers instead of values) and outcome. Requests slower than the configured threshold are logged with
+ * their shape and number of bound values; the values themselves are never logged.
+ */
+@Slf4j
+class QueryMetricsRequestTracker implements RequestTracker {
+    static final String QUERY_METRIC = "cassandra.query";
+
+    private final Meter.MeterProvider<Timer> timers;
+    private final long slowQueryThresholdNanos;
+
+    QueryMetricsRequestTracker(MeterRegistry registry, Duration slowQueryThreshold) {
+        this.timers = Timer.builder(QUERY_METRIC)
+                .description("CQL request latency, including retries and speculative executions")
+                .withRegistry(registry);
+        this.slowQueryThresholdNanos = slowQueryThreshold == null ? 0 : slowQueryThreshold.toNanos();
+    }
+
+    @Override
+    public void onSuccess(Request request, long latencyNanos, DriverExecutionProfile profile, Node node,
+                          String requestLogPrefix) {
+        record(request, latencyNanos, profile, "success");
+    }
+
+    @Override
+    public void onError(Request request, Throwable error, long latencyNanos, DriverExecutionProfile profile,
+                        Node node, String requestLogPrefix) {
+        record(request, latencyNanos, profile, "error");
+    }
+
+    @Override
+    public void close() {
+    }
+
+    private void record(Request request, long latencyNanos, DriverExecutionProfile profile, String outcome) {
+        var shape = shape(request);
+        timers.withTags("query", shape, "outcome", outcome).record(latencyNanos, TimeUnit.NANOSECONDS);
+        if (slowQueryThresholdNanos > 0 && latencyNanos >= slowQueryThresholdNanos) {
+            log.warn("Slow CQL request ({} ms, profile {}, {} bound values, {}): {}",
+                    TimeUnit.NANOSECONDS.toMillis(latencyNanos), profile.getName(), boundValues(request), outcome, shape);
+        }
+    }
+
+    static String shape(Request request) {
+        if (request instanceof BoundStatement bound) {
+            return bound.getPreparedStatement().getQuery();
+        }
+        if (request instanceof SimpleStatement simple) {
+            return simple.getQuery();
+        }
+        if (request instanceof BatchStatement batch) {
+            var statements = new LinkedHashSet<String>();
+            for (BatchableStatement<?> statement : batch) {
+                statements.add(shape(statement));
+            }
+            return "BATCH " + batch.getBatchType() + ": " + String.join("; ", statements);
+        }
+        return request.getClass().getSimpleName();
+    }
+
+    static int boundValues(Request request) {
+        if (request instanceof BoundStatement bound) {
+            return bound.size();
+        }
+        if (request instanceof SimpleStatement simple) {
+            return simple.getPositionalValues().size() + simple.getNamedValues().size();
+        }
+        if (request instanceof BatchStatement batch) {
+            int values = 0;
+            for (BatchableStatement<?> statement : batch) {
+                values += boundValues(statement);
+            }
+            return values;
+        }
+        return 0;
+    }
+}
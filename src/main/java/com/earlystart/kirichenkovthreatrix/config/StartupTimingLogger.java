@@ -0,0 +1,45 @@
+package com.earlystart.kirichenkovthreatrix.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.boot.context.metrics.buffering.StartupTimeline;
+import org.springframework.context.ApplicationListener;
+import org.springframework.core.metrics.StartupStep;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.util.Comparator;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+/**
+ * Logs how long the service took to become ready. When started with {@code -Dthreatrix.startup.timing=true}
+ * the application records its startup steps, and the slowest bean creations are logged as well.
+ */
+@Slf4j
+@Component
+public class StartupTimingLogger implements ApplicationListener<ApplicationReadyEvent> {
+    public static final String TIMING_PROPERTY = "threatrix.startup.timing";
+    private static final int SLOWEST_STEPS = 15;
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        log.info("Ready in {} ms, {} ms after JVM start", event.getTimeTaken().toMillis(),
+                ManagementFactory.getRuntimeMXBean().getUptime());
+        if (event.getApplicationContext().getApplicationStartup() instanceof BufferingApplicationStartup startup) {
+            startup.getBufferedTimeline().getEvents().stream()
+                    .filter(step -> step.getStartupStep().getName().equals("spring.beans.instantiate"))
+                    .sorted(Comparator.comparing(StartupTimeline.TimelineEvent::getDuration).reversed())
+                    .limit(SLOWEST_STEPS)
+                    .forEach(step -> log.info("  {} ms {}", step.getDuration().toMillis(), tags(step.getStartupStep())));
+        }
+    }
+
+    private static String tags(StartupStep step) {
+        return StreamSupport.stream(step.getTags().spliterator(), false)
+                .filter(tag -> tag.getKey().equals("beanName"))
+                .map(StartupStep.Tag::getValue)
+                .collect(Collectors.joining(" "));
+    }
+}
@@ -0,0 +1,17 @@
+package com.earlystart.kirichenkovthreatrix.config;
+
+import com.earlystart.kirichenkovthreatrix.service.user.LocalUserCacheInvalidationBus;
+import com.earlystart.kirichenkovthreatrix.service.user.UserCacheInvalidationBus;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class UserCacheConfig {
+
+    @Bean
+    @ConditionalOnMissingBean(UserCacheInvalidationBus.class)
+    public UserCacheInvalidationBus userCacheInvalidationBus() {
+        return new LocalUserCacheInvalidationBus();
+    }
+}
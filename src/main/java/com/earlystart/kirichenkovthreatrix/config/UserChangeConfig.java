@@ -0,0 +1,32 @@
+package com.earlystart.kirichenkovthreatrix.config;
+
+import com.earlystart.kirichenkovthreatrix.service.user.LocalUserChangeBus;
+import com.earlystart.kirichenkovthreatrix.service.user.UserChangeBus;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.Executor;
+
+@Configuration
+public class UserChangeConfig {
+
+    @Bean
+    @ConditionalOnMissingBean(UserChangeBus.class)
+    public UserChangeBus userChangeBus() {
+        return new LocalUserChangeBus();
+    }
+
+    // Writes events to subscribers. Each subscription has at most one delivery task queued at a time.
+    @Bean(name = "userChangeExecutor")
+    public Executor userChangeExecutor(@Value("${threatrix.graphql.subscriptions.delivery-threads:8}") int threads) {
+        var executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setThreadNamePrefix("user-changes-");
+        executor.initialize();
+        return executor;
+    }
+}
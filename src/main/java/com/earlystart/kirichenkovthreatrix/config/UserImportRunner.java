@@ -0,0 +1,50 @@
+package com.earlystart.kirichenkovthreatrix.config;
+
+import com.earlystart.kirichenkovthreatrix.service.user.UserImportService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+
+/**
+ * Imports the users of {@code threatrix.import.file} on startup, after the schema migrations. Combined with
+ * {@code --spring.main.web-application-type=none} the service exits once the import and the other startup
+ * jobs are done; the driver's threads would otherwise keep the JVM running.
+ */
+@Slf4j
+@Component
+@Order(2)
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "threatrix.import.file")
+public class UserImportRunner implements CommandLineRunner {
+    private final UserImportService userImportService;
+
+    @Value("${threatrix.import.file}")
+    private Path file;
+
+    @Override
+    public void run(String... args) throws Exception {
+        log.info("Importing users from {}", file);
+        var result = userImportService.importUsers(file);
+        log.info("Imported {} users from {} in {} ms ({} users/s), rejected {}", result.imported(), file,
+                result.elapsed().toMillis(), result.usersPerSecond(), result.rejected());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void exitWithoutWebServer(ApplicationReadyEvent event) {
+        var context = event.getApplicationContext();
+        if (!(context instanceof WebServerApplicationContext)) {
+            log.info("Import done, shutting down");
+            System.exit(SpringApplication.exit(context));
+        }
+    }
+}
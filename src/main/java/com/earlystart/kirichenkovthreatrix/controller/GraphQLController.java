@@ -1,40 +1,199 @@
 package com.earlystart.kirichenkovthreatrix.controller;
 
-import com.earlystart.kirichenkovthreatrix.service.user.UserService;
+import com.earlystart.kirichenkovthreatrix.graphql.AdmissionControlInstrumentation;
+import com.earlystart.kirichenkovthreatrix.graphql.CachingPreparsedDocumentProvider;
+import com.earlystart.kirichenkovthreatrix.graphql.ExecutionResultBatch;
+import com.earlystart.kirichenkovthreatrix.graphql.GraphQLErrorExceptionHandler;
+import com.earlystart.kirichenkovthreatrix.graphql.PersistedQueryException;
+import com.earlystart.kirichenkovthreatrix.graphql.PersistedQueryStore;
+import com.earlystart.kirichenkovthreatrix.service.user.UserDataLoaders;
 import com.earlystart.kirichenkovthreatrix.service.user.UserServiceImpl;
 import graphql.ExecutionInput;
+import graphql.ExecutionResult;
 import graphql.GraphQL;
+import graphql.GraphqlErrorBuilder;
+import graphql.execution.instrumentation.ChainedInstrumentation;
+import graphql.execution.instrumentation.Instrumentation;
 import graphql.schema.GraphQLSchema;
-import io.leangen.graphql.GraphQLSchemaGenerator;
 import jakarta.servlet.http.HttpServletRequest;
+import org.reactivestreams.Publisher;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 
 @RestController
 public class GraphQLController {
+    private static final String CLIENT_ID_HEADER = "X-Client-Id";
     private final GraphQL graphQL;
+    private final Executor executor;
+    private final UserDataLoaders userDataLoaders;
+    private final PersistedQueryStore persistedQueries;
+
+    @Value("${threatrix.graphql.subscriptions.timeout:30m}")
+    private Duration subscriptionTimeout;
+
+    @Value("${threatrix.graphql.batch.max-operations:20}")
+    private int batchMaxOperations;
+
+    @Value("${threatrix.graphql.batch.max-parallelism:4}")
+    private int batchMaxParallelism;
+
+    @Value("${threatrix.graphql.cost.client-budget.trusted-proxies:}")
+    private Set<String> trustedProxies;
 
     @Autowired
-    public GraphQLController(UserService userService) {
-        GraphQLSchema schema = new GraphQLSchemaGenerator()
-                .withOperationsFromSingleton(userService)
-                .generate();
-        this.graphQL = GraphQL.newGraphQL(schema).build();
+    public GraphQLController(GraphQLSchema schema,
+                             CachingPreparsedDocumentProvider documentProvider,
+                             @Qualifier("graphQLExecutor") Executor executor,
+                             UserDataLoaders userDataLoaders,
+                             List<Instrumentation> instrumentations,
+                             PersistedQueryStore persistedQueries) {
+        this.graphQL = GraphQL.newGraphQL(schema)
+                .preparsedDocumentProvider(documentProvider)
+                .instrumentation(new ChainedInstrumentation(instrumentations))
+                .defaultDataFetcherExceptionHandler(new GraphQLErrorExceptionHandler())
+                .build();
+        this.executor = executor;
+        this.userDataLoaders = userDataLoaders;
+        this.persistedQueries = persistedQueries;
     }
 
+    /**
+     * Executes one operation, or a JSON array of operations. Operations of a batch run concurrently,
+     * at most {@code threatrix.graphql.batch.max-parallelism} at a time, and their results are returned
+     * in request order. A failing operation only fails its own result.
+     */
     @PostMapping(value = "/graphql", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
-    public Map<String, Object> indexFromAnnotated(@RequestBody Map<String, String> request, HttpServletRequest raw) {
-        var executionResult = graphQL.execute(ExecutionInput.newExecutionInput()
-                .query(request.get("query"))
-                .operationName(request.get("operationName"))
+    public CompletableFuture<?> graphql(@RequestBody Object body, HttpServletRequest raw) {
+        if (body instanceof List<?> operations) {
+            return executeBatch(operations, raw);
+        }
+        return indexFromAnnotated(asMap(body), raw);
+    }
+
+    public CompletableFuture<ExecutionResult> indexFromAnnotated(Map<String, Object> request, HttpServletRequest raw) {
+        return execute(request, raw).thenApply(result -> result.getData() instanceof Publisher<?>
+                ? error("Subscriptions are served as " + MediaType.TEXT_EVENT_STREAM_VALUE)
+                : result);
+    }
+
+    private CompletableFuture<?> executeBatch(List<?> operations, HttpServletRequest raw) {
+        if (operations.size() > batchMaxOperations) {
+            return CompletableFuture.completedFuture(error(
+                    "Batch of " + operations.size() + " operations exceeds the maximum of " + batchMaxOperations));
+        }
+        var results = new ExecutionResult[operations.size()];
+        var next = new AtomicInteger();
+        var workers = new CompletableFuture<?>[Math.min(batchMaxParallelism, operations.size())];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = executeNext(operations, raw, results, next);
+        }
+        return CompletableFuture.allOf(workers)
+                .thenApply(done -> new ExecutionResultBatch(Arrays.asList(results)));
+    }
+
+    // Each worker takes the next pending operation of the batch once its previous one has completed.
+    private CompletableFuture<Void> executeNext(List<?> operations, HttpServletRequest raw,
+                                                ExecutionResult[] results, AtomicInteger next) {
+        int index = next.getAndIncrement();
+        if (index >= operations.size()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<ExecutionResult> result;
+        try {
+            result = operations.get(index) instanceof Map<?, ?>
+                    ? indexFromAnnotated(asMap(operations.get(index)), raw)
+                    : CompletableFuture.completedFuture(error("Operation " + index + " is not a JSON object"));
+        } catch (RuntimeException e) {
+            result = CompletableFuture.failedFuture(e);
+        }
+        return result
+                .exceptionally(e -> error(e instanceof CompletionException && e.getCause() != null
+                        ? e.getCause().getMessage()
+                        : e.getMessage()))
+                .thenCompose(executed -> {
+                    results[index] = executed;
+                    return executeNext(operations, raw, results, next);
+                });
+    }
+
+    private static ExecutionResult error(String message) {
+        return ExecutionResult.newExecutionResult()
+                .addError(GraphqlErrorBuilder.newError().message(message).build())
+                .build();
+    }
+
+    @PostMapping(value = "/graphql", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @SuppressWarnings("unchecked")
+    public SseEmitter subscribe(@RequestBody Map<String, Object> request, HttpServletRequest raw) {
+        var emitter = new SseEmitter(subscriptionTimeout.toMillis());
+        var subscriber = new SseResultSubscriber(emitter);
+        execute(request, raw).whenComplete((result, error) -> {
+            if (error != null) {
+                subscriber.onError(error);
+            } else if (result.getData() instanceof Publisher<?> publisher) {
+                ((Publisher<ExecutionResult>) publisher).subscribe(subscriber);
+            } else {
+                subscriber.complete(result);
+            }
+        });
+        return emitter;
+    }
+
+    private CompletableFuture<ExecutionResult> execute(Map<String, Object> request, HttpServletRequest raw) {
+        Map<String, Object> extensions = asMap(request.get("extensions"));
+        String query;
+        try {
+            query = persistedQueries.resolve((String) request.get("query"), extensions);
+        } catch (PersistedQueryException e) {
+            return CompletableFuture.completedFuture(ExecutionResult.newExecutionResult().addError(e).build());
+        }
+        var executionInput = ExecutionInput.newExecutionInput()
+                .query(query)
+                .operationName((String) request.get("operationName"))
+                .variables(asMap(request.get("variables")))
+                .extensions(extensions)
                 .context(raw)
-                .build());
-        return executionResult.toSpecification();
+                .graphQLContext(Map.of(AdmissionControlInstrumentation.CLIENT_ID, clientId(raw, trustedProxies)))
+                .dataLoaderRegistry(userDataLoaders.newRegistry())
+                .build();
+        return CompletableFuture.supplyAsync(() -> graphQL.executeAsync(executionInput), executor)
+                .thenCompose(Function.identity());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> asMap(Object value) {
+        return value instanceof Map<?, ?> map ? (Map<String, Object>) map : Map.of();
+    }
+
+    /**
+     * The authenticated principal, else the peer address. {@code X-Client-Id} is only taken from peers listed in
+     * {@code threatrix.graphql.cost.client-budget.trusted-proxies}, since any other caller could pick a fresh one
+     * per request and never run out of budget.
+     */
+    static String clientId(HttpServletRequest request, Set<String> trustedProxies) {
+        if (request.getUserPrincipal() != null) {
+            return request.getUserPrincipal().getName();
+        }
+        var remoteAddr = request.getRemoteAddr();
+        var clientId = request.getHeader(CLIENT_ID_HEADER);
+        return clientId != null && !clientId.isBlank() && trustedProxies.contains(remoteAddr) ? clientId : remoteAddr;
     }
 
     private void readWebSocketFrame() throws IOException {
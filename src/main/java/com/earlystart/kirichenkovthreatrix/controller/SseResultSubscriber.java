@@ -0,0 +1,92 @@
+package com.earlystart.kirichenkovthreatrix.controller;
+
+import graphql.ExecutionResult;
+import graphql.GraphqlErrorBuilder;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+
+/**
+ * Writes subscription results to a server-sent event stream in the GraphQL over SSE layout: a {@code next}
+ * event per result, then a {@code complete} event. Results are requested one at a time, so the next one
+ * is only produced once the previous one has been written.
+ */
+final class SseResultSubscriber implements Subscriber<ExecutionResult> {
+    private final SseEmitter emitter;
+    private volatile Subscription subscription;
+    private volatile boolean closed;
+
+    SseResultSubscriber(SseEmitter emitter) {
+        this.emitter = emitter;
+        emitter.onCompletion(this::cancel);
+        emitter.onTimeout(this::cancel);
+        emitter.onError(error -> cancel());
+    }
+
+    @Override
+    public void onSubscribe(Subscription subscription) {
+        this.subscription = subscription;
+        if (closed) {
+            subscription.cancel();
+        } else {
+            subscription.request(1);
+        }
+    }
+
+    @Override
+    public void onNext(ExecutionResult result) {
+        if (send(result)) {
+            subscription.request(1);
+        } else {
+            subscription.cancel();
+        }
+    }
+
+    @Override
+    public void onError(Throwable error) {
+        var message = error.getMessage() == null ? error.getClass().getSimpleName() : error.getMessage();
+        complete(ExecutionResult.newExecutionResult()
+                .addError(GraphqlErrorBuilder.newError().message(message).build())
+                .build());
+    }
+
+    @Override
+    public void onComplete() {
+        complete(null);
+    }
+
+    void complete(ExecutionResult last) {
+        if (last != null && !send(last)) {
+            return;
+        }
+        try {
+            emitter.send(SseEmitter.event().name("complete").data(""));
+            emitter.complete();
+        } catch (IOException | IllegalStateException e) {
+            emitter.completeWithError(e);
+        }
+    }
+
+    private boolean send(ExecutionResult result) {
+        try {
+            emitter.send(SseEmitter.event().name("next").data(result, MediaType.APPLICATION_JSON));
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            // The client went away or the emitter timed out.
+            closed = true;
+            emitter.completeWithError(e);
+            return false;
+        }
+    }
+
+    private void cancel() {
+        closed = true;
+        var current = subscription;
+        if (current != null) {
+            current.cancel();
+        }
+    }
+}
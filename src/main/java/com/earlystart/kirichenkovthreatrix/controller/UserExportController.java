@@ -0,0 +1,51 @@
+package com.earlystart.kirichenkovthreatrix.controller;
+
+import com.earlystart.kirichenkovthreatrix.service.user.UserExportService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * Bulk export of all users. Disabled unless {@code threatrix.export.token} is set; callers then
+ * authenticate with {@code Authorization: Bearer <token>}.
+ */
+@RestController
+@RequiredArgsConstructor
+public class UserExportController {
+    private static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+    private static final String BEARER = "Bearer ";
+
+    private final UserExportService userExportService;
+
+    @Value("${threatrix.export.token:}")
+    private String token;
+
+    @GetMapping(value = "/users/export", produces = APPLICATION_NDJSON_VALUE)
+    public StreamingResponseBody exportUsers(@RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization) {
+        if (token.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+        }
+        if (!authorized(authorization)) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED);
+        }
+        var export = userExportService.reserve()
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "Too many exports running"));
+        return export::writeTo;
+    }
+
+    private boolean authorized(String authorization) {
+        return authorization != null
+                && authorization.startsWith(BEARER)
+                && MessageDigest.isEqual(authorization.substring(BEARER.length()).getBytes(StandardCharsets.UTF_8),
+                token.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,8 @@
+package com.earlystart.kirichenkovthreatrix.dao;
+
+/**
+ * Outcome of a user delete: whether the user existed and the organization it belonged to.
+ */
+public record DeletedUser(boolean existed, String organization) {
+    public static final DeletedUser MISSING = new DeletedUser(false, null);
+}
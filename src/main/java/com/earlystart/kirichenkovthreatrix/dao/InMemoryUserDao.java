@@ -0,0 +1,461 @@
+package com.earlystart.kirichenkovthreatrix.dao;
+
+import com.earlystart.kirichenkovthreatrix.model.User;
+import com.earlystart.kirichenkovthreatrix.model.UserUpdate;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.cassandra.core.query.CassandraPageRequest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Repository;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.StreamSupport;
+
+/**
+ * {@link UserDao} kept entirely in memory, enabled with {@code threatrix.storage.type=memory}, which also
+ * switches off the Cassandra repositories. The {@code memory} profile sets it and switches off the Cassandra session.
+ * <p>
+ * Users are held in a sorted map from email to a packed {@link UserRecord}, with a sorted email index
+ * per organization, so the paged queries are range reads just like on the Cassandra tables. Writes
+ * to the same email are serialized; reads never block and re-check the organization of every user
+ * found through the index. Paging state is the last email of the previous page.
+ * <p>
+ * If {@code threatrix.storage.memory.snapshot.path} is set, the data is loaded from that file on
+ * startup and written back periodically and on shutdown.
+ */
+@Slf4j
+@Repository
+@ConditionalOnProperty(name = "threatrix.storage.type", havingValue = "memory")
+public class InMemoryUserDao implements UserDao {
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final int LOCK_STRIPES = 64;
+
+    private final ConcurrentSkipListMap<String, byte[]> users = new ConcurrentSkipListMap<>();
+    private final ConcurrentSkipListMap<String, NavigableSet<String>> emailsByOrganization = new ConcurrentSkipListMap<>();
+    // Kept next to the index because sizing a skip list set walks all of it.
+    private final ConcurrentHashMap<String, AtomicLong> userCounts = new ConcurrentHashMap<>();
+    private final Object[] locks = new Object[LOCK_STRIPES];
+    private final Path snapshotPath;
+    private final Duration snapshotInterval;
+    private ScheduledExecutorService snapshotScheduler;
+
+    public InMemoryUserDao(@Value("${threatrix.storage.memory.snapshot.path:}") String snapshotPath,
+                           @Value("${threatrix.storage.memory.snapshot.interval:5m}") Duration snapshotInterval) {
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+        this.snapshotPath = snapshotPath == null || snapshotPath.isBlank() ? null : Path.of(snapshotPath);
+        this.snapshotInterval = snapshotInterval;
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (snapshotPath == null) {
+            return;
+        }
+        if (Files.exists(snapshotPath)) {
+            loadSnapshot(snapshotPath);
+            log.info("Loaded {} users from snapshot {}", users.size(), snapshotPath);
+        }
+        if (!snapshotInterval.isZero()) {
+            snapshotScheduler = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("user-snapshot-"));
+            snapshotScheduler.scheduleWithFixedDelay(this::snapshotQuietly,
+                    snapshotInterval.toMillis(), snapshotInterval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (snapshotScheduler != null) {
+            snapshotScheduler.shutdown();
+        }
+        if (snapshotPath != null) {
+            snapshotQuietly();
+        }
+    }
+
+    // Reads
+
+    @Override
+    public Optional<User> findById(String email) {
+        return Optional.ofNullable(read(email));
+    }
+
+    @Override
+    public boolean existsById(String email) {
+        return users.containsKey(email);
+    }
+
+    @Override
+    public boolean existsByEmail(String email) {
+        return existsById(email);
+    }
+
+    @Override
+    public List<User> findAll() {
+        return toUsers(users, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<User> findAllById(Iterable<String> emails) {
+        List<User> found = new ArrayList<>();
+        for (String email : emails) {
+            var user = read(email);
+            if (user != null) {
+                found.add(user);
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public Slice<User> findAll(Pageable pageable) {
+        var after = pagingState(pageable);
+        return slice(after == null ? users : users.tailMap(after, false), pageable);
+    }
+
+    @Override
+    public long count() {
+        return users.size();
+    }
+
+    @Override
+    public List<User> findAllWithPaging(String startAfterEmail, int limit) {
+        return toUsers(users.tailMap(startAfterEmail, false), limit);
+    }
+
+    @Override
+    public List<User> findByOrganizationWithPagination(String organization, String lastEmail, int limit) {
+        var emails = emailsByOrganization.get(organization);
+        if (emails == null) {
+            return List.of();
+        }
+        return toOrganizationUsers(organization, emails.tailSet(lastEmail, false), limit);
+    }
+
+    @Override
+    public Slice<User> findByOrganization(String organization, Pageable pageable) {
+        var emails = emailsByOrganization.get(organization);
+        if (emails == null) {
+            return new SliceImpl<>(List.of(), pageable, false);
+        }
+        var after = pagingState(pageable);
+        var page = toOrganizationUsers(organization, after == null ? emails : emails.tailSet(after, false),
+                pageable.getPageSize() + 1);
+        return slice(page, pageable);
+    }
+
+    @Override
+    public Map<String, Long> countUsersByOrganizations(Collection<String> organizations) {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (var organization : organizations) {
+            var count = userCounts.get(organization);
+            counts.put(organization, count == null ? 0L : count.get());
+        }
+        return counts;
+    }
+
+    // Records are decoded whole, so the projected reads return every column.
+    @Override
+    public List<User> findAllWithPaging(String startAfterEmail, int limit, Set<String> columns) {
+        return findAllWithPaging(startAfterEmail, limit);
+    }
+
+    @Override
+    public List<User> findByOrganizationWithPagination(String organization, String lastEmail, int limit,
+                                                       Set<String> columns) {
+        return findByOrganizationWithPagination(organization, lastEmail, limit);
+    }
+
+    @Override
+    public Slice<User> findAll(Pageable pageable, Set<String> columns) {
+        return findAll(pageable);
+    }
+
+    @Override
+    public Slice<User> findByOrganization(String organization, Pageable pageable, Set<String> columns) {
+        return findByOrganization(organization, pageable);
+    }
+
+    @Override
+    public CompletableFuture<Void> scanUsers(Executor executor, Consumer<User> consumer) {
+        return CompletableFuture.runAsync(
+                () -> users.forEach((email, record) -> consumer.accept(UserRecord.decode(email, record))), executor);
+    }
+
+    // Writes
+
+    @Override
+    public <S extends User> S save(S user) {
+        saveUser(user);
+        return user;
+    }
+
+    @Override
+    public <S extends User> List<S> saveAll(Iterable<S> users) {
+        return StreamSupport.stream(users.spliterator(), false).map(this::save).toList();
+    }
+
+    @Override
+    public <S extends User> S insert(S user) {
+        return save(user);
+    }
+
+    @Override
+    public <S extends User> List<S> insert(Iterable<S> users) {
+        return saveAll(users);
+    }
+
+    @Override
+    public SavedUser saveUser(User user) {
+        Objects.requireNonNull(user.getEmail(), "email");
+        return new SavedUser(user, write(user.getEmail(), UserRecord.encode(user)));
+    }
+
+    @Override
+    public CompletableFuture<SavedUser> saveUserAsync(User user) {
+        return CompletableFuture.completedFuture(saveUser(user));
+    }
+
+    // Applied to the stored user under its lock; current is only used if there is none.
+    @Override
+    public SavedUser updateUser(UserUpdate changes, User current) {
+        synchronized (lock(current.getEmail())) {
+            var stored = read(current.getEmail());
+            return saveUser(changes.applyTo(stored == null ? current : stored));
+        }
+    }
+
+    // The organization is known here, so the hint is not needed.
+    @Override
+    public void deleteUser(String email, String organization) {
+        remove(email);
+    }
+
+    @Override
+    public DeletedUser deleteUserIfExists(String email, String organization) {
+        return remove(email);
+    }
+
+    @Override
+    public void deleteByEmail(String email) {
+        remove(email);
+    }
+
+    @Override
+    public void deleteById(String email) {
+        remove(email);
+    }
+
+    @Override
+    public void delete(User user) {
+        remove(user.getEmail());
+    }
+
+    @Override
+    public void deleteAllById(Iterable<? extends String> emails) {
+        emails.forEach(this::remove);
+    }
+
+    @Override
+    public void deleteAll(Iterable<? extends User> users) {
+        users.forEach(this::delete);
+    }
+
+    @Override
+    public void deleteAll() {
+        users.keySet().forEach(this::remove);
+    }
+
+    // The organization index is maintained on every write.
+    @Override
+    public long backfillOrganizationIndex() {
+        return 0;
+    }
+
+    // Counts change under the same lock as the organization index, so they cannot drift.
+    @Override
+    public long reconcileOrganizationUserCounts() {
+        return 0;
+    }
+
+    // Snapshots
+
+    public void snapshot() throws IOException {
+        var temporary = snapshotPath.resolveSibling(snapshotPath.getFileName() + ".tmp");
+        try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            out.writeInt(SNAPSHOT_VERSION);
+            for (Map.Entry<String, byte[]> entry : users.entrySet()) {
+                out.writeBoolean(true);
+                out.writeUTF(entry.getKey());
+                out.writeInt(entry.getValue().length);
+                out.write(entry.getValue());
+            }
+            out.writeBoolean(false);
+        }
+        Files.move(temporary, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void loadSnapshot(Path path) throws IOException {
+        try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            int version = in.readInt();
+            if (version != SNAPSHOT_VERSION) {
+                throw new IOException("Unsupported user snapshot version " + version);
+            }
+            while (in.readBoolean()) {
+                var email = in.readUTF();
+                var record = new byte[in.readInt()];
+                in.readFully(record);
+                write(email, record);
+            }
+        }
+    }
+
+    private void snapshotQuietly() {
+        try {
+            snapshot();
+        } catch (IOException | UncheckedIOException e) {
+            log.error("Failed to write user snapshot {}", snapshotPath, e);
+        }
+    }
+
+    // Internals
+
+    // Returns the organization the user had before the write.
+    private String write(String email, byte[] record) {
+        synchronized (lock(email)) {
+            var previous = users.put(email, record);
+            var previousOrganization = previous == null ? null : UserRecord.organization(previous);
+            var organization = UserRecord.organization(record);
+            if (Objects.equals(previousOrganization, organization)) {
+                return previousOrganization;
+            }
+            unindex(previousOrganization, email);
+            if (organization != null
+                    && emailsByOrganization.computeIfAbsent(organization, key -> new ConcurrentSkipListSet<>()).add(email)) {
+                userCounts.computeIfAbsent(organization, key -> new AtomicLong()).incrementAndGet();
+            }
+            return previousOrganization;
+        }
+    }
+
+    private DeletedUser remove(String email) {
+        synchronized (lock(email)) {
+            var previous = users.remove(email);
+            if (previous == null) {
+                return DeletedUser.MISSING;
+            }
+            var organization = UserRecord.organization(previous);
+            unindex(organization, email);
+            return new DeletedUser(true, organization);
+        }
+    }
+
+    private void unindex(String organization, String email) {
+        if (organization == null) {
+            return;
+        }
+        var emails = emailsByOrganization.get(organization);
+        if (emails != null && emails.remove(email)) {
+            userCounts.get(organization).decrementAndGet();
+        }
+    }
+
+    private User read(String email) {
+        var record = users.get(email);
+        return record == null ? null : UserRecord.decode(email, record);
+    }
+
+    private Object lock(String email) {
+        return locks[Math.floorMod(email.hashCode(), locks.length)];
+    }
+
+    private static List<User> toUsers(NavigableMap<String, byte[]> range, int limit) {
+        List<User> page = new ArrayList<>(Math.min(limit, 256));
+        for (var entry : range.entrySet()) {
+            if (page.size() >= limit) {
+                break;
+            }
+            page.add(UserRecord.decode(entry.getKey(), entry.getValue()));
+        }
+        return page;
+    }
+
+    private List<User> toOrganizationUsers(String organization, Collection<String> emails, int limit) {
+        List<User> page = new ArrayList<>(Math.min(limit, 256));
+        for (var email : emails) {
+            if (page.size() >= limit) {
+                break;
+            }
+            var user = read(email);
+            // Skips users that moved to another organization after the index was read.
+            if (user != null && organization.equals(user.getOrganization())) {
+                page.add(user);
+            }
+        }
+        return page;
+    }
+
+    private Slice<User> slice(NavigableMap<String, byte[]> range, Pageable pageable) {
+        return slice(toUsers(range, pageable.getPageSize() + 1), pageable);
+    }
+
+    // Fetches one extra row to tell whether there is a next page. As with Spring Data Cassandra, the
+    // slice's pageable carries the paging state of the next page.
+    private static Slice<User> slice(List<User> rows, Pageable pageable) {
+        int size = pageable.getPageSize();
+        if (rows.size() <= size) {
+            return new SliceImpl<>(rows, pageable, false);
+        }
+        var page = rows.subList(0, size);
+        var last = page.get(size - 1).getEmail();
+        var current = CassandraPageRequest.of(PageRequest.of(pageable.getPageNumber(), size, pageable.getSort()),
+                ByteBuffer.wrap(last.getBytes(StandardCharsets.UTF_8)));
+        return new SliceImpl<>(page, current, true);
+    }
+
+    private static String pagingState(Pageable pageable) {
+        if (pageable instanceof CassandraPageRequest request && request.getPagingState() != null) {
+            return StandardCharsets.UTF_8.decode(request.getPagingState().duplicate()).toString();
+        }
+        return null;
+    }
+}
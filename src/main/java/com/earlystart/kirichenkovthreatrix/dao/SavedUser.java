@@ -0,0 +1,14 @@
+package com.earlystart.kirichenkovthreatrix.dao;
+
+import com.earlystart.kirichenkovthreatrix.model.User;
+
+/**
+ * A written user together with the organization the row had before the write, {@code null} when the
+ * user did not exist or had no organization.
+ */
+public record SavedUser(User user, String previousOrganization) {
+
+    public boolean movedOrganization() {
+        return previousOrganization != null && !previousOrganization.equals(user.getOrganization());
+    }
+}
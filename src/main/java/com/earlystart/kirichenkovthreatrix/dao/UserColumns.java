@@ -0,0 +1,35 @@
+package com.earlystart.kirichenkovthreatrix.dao;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Columns read by the projected user queries. Sets are normalized to table order and always include
+ * {@code email}, so each distinct selection maps to one CQL string and one prepared statement.
+ */
+public final class UserColumns {
+    public static final String EMAIL = "email";
+    public static final Set<String> ALL = Collections.unmodifiableSet(new LinkedHashSet<>(
+            List.of(EMAIL, "firstname", "lastname", "password", "organization", "permissions")));
+
+    private UserColumns() {
+    }
+
+    public static Set<String> of(Collection<String> columns) {
+        for (var column : columns) {
+            if (!ALL.contains(column)) {
+                throw new IllegalArgumentException("Unknown user column " + column);
+            }
+        }
+        Set<String> normalized = new LinkedHashSet<>();
+        for (var column : ALL) {
+            if (column.equals(EMAIL) || columns.contains(column)) {
+                normalized.add(column);
+            }
+        }
+        return normalized.size() == ALL.size() ? ALL : Collections.unmodifiableSet(normalized);
+    }
+}
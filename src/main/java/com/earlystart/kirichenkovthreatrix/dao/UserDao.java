@@ -4,19 +4,21 @@ import com.earlystart.kirichenkovthreatrix.model.User;
 import jdk.jfr.Registered;
 import org.springframework.data.cassandra.repository.CassandraRepository;
 import org.springframework.data.cassandra.repository.Query;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
 import java.util.List;
 
 
 @Registered
-public interface UserDao extends CassandraRepository<User, String> {
+public interface UserDao extends CassandraRepository<User, String>, UserDaoCustom {
     boolean existsByEmail(String email);
 
     void deleteByEmail(String email);
 
-    @Query("SELECT * FROM user WHERE email > ?0 LIMIT ?1 ALLOW FILTERING")
-    List<User> findAllWithPaging(String startAfterEmail, int limit);
-
-    @Query("SELECT * FROM user WHERE organization = ?0 AND email > ?1 LIMIT ?2 ALLOW FILTERING")
+    @Query("SELECT * FROM users_by_organization WHERE organization = ?0 AND email > ?1 LIMIT ?2")
     List<User> findByOrganizationWithPagination(String organization, String lastEmail, int limit);
+
+    @Query("SELECT * FROM users_by_organization WHERE organization = ?0")
+    Slice<User> findByOrganization(String organization, Pageable pageable);
 }
@@ -0,0 +1,81 @@
+package com.earlystart.kirichenkovthreatrix.dao;
+
+import com.earlystart.kirichenkovthreatrix.model.User;
+import com.earlystart.kirichenkovthreatrix.model.UserUpdate;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+/**
+ * Writes that keep the {@code user} table and its denormalized {@code users_by_organization}
+ * copy in step. Callers should use these instead of {@code save}/{@code deleteByEmail}.
+ * <p>
+ * The paged reads taking {@link UserColumns} behave like their {@link UserDao} counterparts but only
+ * read the given columns; the other properties of the returned users are {@code null}.
+ */
+public interface UserDaoCustom {
+    /**
+     * Filtered scan of the whole {@code user} table, run with the scan timeout.
+     */
+    List<User> findAllWithPaging(String startAfterEmail, int limit);
+
+    List<User> findAllWithPaging(String startAfterEmail, int limit, Set<String> columns);
+
+    List<User> findByOrganizationWithPagination(String organization, String lastEmail, int limit, Set<String> columns);
+
+    Slice<User> findAll(Pageable pageable, Set<String> columns);
+
+    Slice<User> findByOrganization(String organization, Pageable pageable, Set<String> columns);
+
+    SavedUser saveUser(User user);
+
+    CompletableFuture<SavedUser> saveUserAsync(User user);
+
+    /**
+     * Writes only the properties set in {@code changes} to {@code current}, the stored user as the caller
+     * last read it, and returns the result. Nothing is read first; only a change of organization costs a
+     * second round trip, for the user counts.
+     */
+    SavedUser updateUser(UserUpdate changes, User current);
+
+    /**
+     * Unconditional delete of a user the caller knows to be in {@code organization} ({@code null} for none
+     * or unknown). Nothing is read first.
+     */
+    void deleteUser(String email, String organization);
+
+    /**
+     * Lightweight-transaction delete, for callers that need to know for certain whether the user existed.
+     * The organization is taken from the previous row where the database returns it, else from
+     * {@code organization} as in {@link #deleteUser(String, String)}.
+     */
+    DeletedUser deleteUserIfExists(String email, String organization);
+
+    long backfillOrganizationIndex();
+
+    /**
+     * Number of users per organization, read from counters maintained by the writes above rather than
+     * counted. Organizations without users map to 0.
+     */
+    Map<String, Long> countUsersByOrganizations(Collection<String> organizations);
+
+    /**
+     * Recounts every organization from {@code users_by_organization} and corrects the counters that
+     * drifted, e.g. after concurrent creates of the same email. Returns the number of counters corrected.
+     */
+    long reconcileOrganizationUserCounts();
+
+    /**
+     * Scans the whole {@code user} table as independent token sub-ranges run on {@code executor}.
+     * {@code consumer} is called concurrently from the scanning threads; blocking in it pauses
+     * paging of that sub-range.
+     */
+    CompletableFuture<Void> scanUsers(Executor executor, Consumer<User> consumer);
+}
@@ -0,0 +1,437 @@
+package com.earlystart.kirichenkovthreatrix.dao;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.AsyncResultSet;
+import com.datastax.oss.driver.api.core.cql.BatchStatement;
+import com.datastax.oss.driver.api.core.cql.BatchableStatement;
+import com.datastax.oss.driver.api.core.cql.BoundStatement;
+import com.datastax.oss.driver.api.core.cql.DefaultBatchType;
+import com.datastax.oss.driver.api.core.cql.PagingState;
+import com.datastax.oss.driver.api.core.cql.PreparedStatement;
+import com.datastax.oss.driver.api.core.cql.ResultSet;
+import com.datastax.oss.driver.api.core.cql.Row;
+import com.datastax.oss.driver.api.core.cql.SimpleStatement;
+import com.datastax.oss.driver.api.core.metadata.token.TokenRange;
+import com.earlystart.kirichenkovthreatrix.model.User;
+import com.earlystart.kirichenkovthreatrix.model.UserUpdate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.data.cassandra.core.convert.CassandraConverter;
+import org.springframework.data.cassandra.core.query.CassandraPageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import static com.earlystart.kirichenkovthreatrix.config.CassandraSessionConfig.SCAN_PROFILE;
+import static com.earlystart.kirichenkovthreatrix.config.CassandraSessionConfig.WRITE_PROFILE;
+
+public class UserDaoCustomImpl implements UserDaoCustom {
+    private static final String SELECT_ORGANIZATION = "SELECT organization FROM user WHERE email = ?";
+    private static final String INSERT_USER =
+            "INSERT INTO user (email, firstname, lastname, password, organization, permissions) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String UPDATE_USER = "UPDATE user SET %s WHERE email = ?";
+    private static final String DELETE_USER = "DELETE FROM user WHERE email = ?";
+    private static final String DELETE_USER_IF_EXISTS = "DELETE FROM user WHERE email = ? IF EXISTS";
+    private static final String INSERT_USER_BY_ORGANIZATION =
+            "INSERT INTO users_by_organization (organization, email, firstname, lastname, password, permissions) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String UPDATE_USER_BY_ORGANIZATION =
+            "UPDATE users_by_organization SET %s WHERE organization = ? AND email = ?";
+    private static final String DELETE_USER_BY_ORGANIZATION =
+            "DELETE FROM users_by_organization WHERE organization = ? AND email = ?";
+    private static final String UPDATE_USER_COUNT =
+            "UPDATE organization_user_counts SET users = users + ? WHERE organization = ?";
+    private static final String SELECT_USER_COUNT = "SELECT users FROM organization_user_counts WHERE organization = ?";
+    private static final String SELECT_COUNTED_ORGANIZATIONS = "SELECT organization FROM organization_user_counts";
+    private static final String SELECT_INDEXED_ORGANIZATIONS = "SELECT DISTINCT organization FROM users_by_organization";
+    private static final String COUNT_USERS_IN_ORGANIZATION =
+            "SELECT COUNT(*) FROM users_by_organization WHERE organization = ?";
+    private static final String SELECT_USERS_AFTER = "SELECT %s FROM user WHERE email > ? LIMIT ? ALLOW FILTERING";
+    private static final String SELECT_ORGANIZATION_USERS_AFTER =
+            "SELECT %s FROM users_by_organization WHERE organization = ? AND email > ? LIMIT ?";
+    private static final String SELECT_USERS = "SELECT %s FROM user";
+    private static final String SELECT_ORGANIZATION_USERS = "SELECT %s FROM users_by_organization WHERE organization = ?";
+    private static final String SELECT_ALL_USERS = "SELECT * FROM user";
+    private static final String SELECT_USERS_IN_TOKEN_RANGE =
+            "SELECT * FROM user WHERE token(email) > ? AND token(email) <= ?";
+
+    private final CqlSession session;
+    private final CassandraConverter converter;
+    private final Map<String, PreparedStatement> statements = new ConcurrentHashMap<>();
+
+    @Value("${threatrix.backfill.page-size:500}")
+    private int backfillPageSize;
+
+    @Value("${threatrix.export.page-size:1000}")
+    private int exportPageSize;
+
+    @Value("${threatrix.export.splits-per-range:1}")
+    private int exportSplitsPerRange;
+
+    public UserDaoCustomImpl(CqlSession session, CassandraConverter converter) {
+        this.session = session;
+        this.converter = converter;
+    }
+
+    @Override
+    public List<User> findAllWithPaging(String startAfterEmail, int limit) {
+        return findAllWithPaging(startAfterEmail, limit, UserColumns.ALL);
+    }
+
+    // ALLOW FILTERING reads every partition, so it gets the scan timeout and no speculative executions.
+    @Override
+    public List<User> findAllWithPaging(String startAfterEmail, int limit, Set<String> columns) {
+        return readAll(session.execute(prepare(SELECT_USERS_AFTER, columns).bind(startAfterEmail, limit)
+                .setExecutionProfileName(SCAN_PROFILE)));
+    }
+
+    @Override
+    public List<User> findByOrganizationWithPagination(String organization, String lastEmail, int limit,
+                                                       Set<String> columns) {
+        return readAll(session.execute(prepare(SELECT_ORGANIZATION_USERS_AFTER, columns).bind(organization, lastEmail, limit)));
+    }
+
+    @Override
+    public Slice<User> findAll(Pageable pageable, Set<String> columns) {
+        return readSlice(prepare(SELECT_USERS, columns).bind(), pageable);
+    }
+
+    @Override
+    public Slice<User> findByOrganization(String organization, Pageable pageable, Set<String> columns) {
+        return readSlice(prepare(SELECT_ORGANIZATION_USERS, columns).bind(organization), pageable);
+    }
+
+    @Override
+    public SavedUser saveUser(User user) {
+        return join(saveUserAsync(user));
+    }
+
+    @Override
+    public CompletableFuture<SavedUser> saveUserAsync(User user) {
+        return session.executeAsync(prepare(SELECT_ORGANIZATION).bind(user.getEmail()))
+                .thenCompose(previous -> {
+                    var previousRow = previous.one();
+                    var previousOrganization = organizationOf(previousRow);
+                    var batch = BatchStatement.builder(DefaultBatchType.LOGGED)
+                            .addStatement(bindText(prepare(INSERT_USER), previousRow != null,
+                                    user.getEmail(),
+                                    user.getFirstName(),
+                                    user.getLastName(),
+                                    user.getPassword(),
+                                    user.getOrganization(),
+                                    user.getPermissions()));
+                    if (previousOrganization != null && !previousOrganization.equals(user.getOrganization())) {
+                        batch.addStatement(prepare(DELETE_USER_BY_ORGANIZATION).bind(previousOrganization, user.getEmail()));
+                    }
+                    if (user.getOrganization() != null) {
+                        batch.addStatement(bindOrganizationIndex(user, user.getOrganization().equals(previousOrganization)));
+                    }
+                    return session.executeAsync(batch.setExecutionProfileName(WRITE_PROFILE).build())
+                            .thenCompose(written -> moveUserCount(previousOrganization, user.getOrganization()))
+                            .thenApply(counted -> new SavedUser(user, previousOrganization));
+                })
+                .toCompletableFuture();
+    }
+
+    @Override
+    public SavedUser updateUser(UserUpdate changes, User current) {
+        var user = changes.applyTo(current);
+        var previousOrganization = current.getOrganization();
+        Map<String, String> values = new LinkedHashMap<>();
+        putIfSet(values, "firstname", changes.getFirstName());
+        putIfSet(values, "lastname", changes.getLastName());
+        putIfSet(values, "password", changes.getPassword());
+        putIfSet(values, "organization", changes.getOrganization());
+        putIfSet(values, "permissions", changes.getPermissions());
+        if (values.isEmpty()) {
+            return new SavedUser(user, previousOrganization);
+        }
+        List<BatchableStatement<?>> writes = new ArrayList<>(3);
+        writes.add(bindUpdate(UPDATE_USER, values, user.getEmail()));
+        if (Objects.equals(previousOrganization, user.getOrganization())) {
+            values.remove("organization");
+            if (previousOrganization != null && !values.isEmpty()) {
+                writes.add(bindUpdate(UPDATE_USER_BY_ORGANIZATION, values, previousOrganization, user.getEmail()));
+            }
+        } else {
+            if (previousOrganization != null) {
+                writes.add(prepare(DELETE_USER_BY_ORGANIZATION).bind(previousOrganization, user.getEmail()));
+            }
+            writes.add(bindOrganizationIndex(user, false));
+        }
+        join(write(writes)
+                .thenCompose(written -> moveUserCount(previousOrganization, user.getOrganization()))
+                .toCompletableFuture());
+        return new SavedUser(user, previousOrganization);
+    }
+
+    @Override
+    public void deleteUser(String email, String organization) {
+        List<BatchableStatement<?>> deletes = new ArrayList<>(2);
+        deletes.add(prepare(DELETE_USER).bind(email));
+        if (organization != null) {
+            deletes.add(prepare(DELETE_USER_BY_ORGANIZATION).bind(organization, email));
+        }
+        join(write(deletes)
+                .thenCompose(written -> moveUserCount(organization, null))
+                .toCompletableFuture());
+    }
+
+    // ScyllaDB returns the deleted row with the LWT result; Cassandra only returns [applied].
+    @Override
+    public DeletedUser deleteUserIfExists(String email, String organization) {
+        var result = session.execute(prepare(DELETE_USER_IF_EXISTS).bind(email)
+                .setExecutionProfileName(WRITE_PROFILE)
+                .setIdempotent(false));
+        if (!result.wasApplied()) {
+            return DeletedUser.MISSING;
+        }
+        var row = result.one();
+        var previousOrganization = row != null && row.getColumnDefinitions().contains("organization")
+                ? organizationOf(row)
+                : organization;
+        if (previousOrganization != null) {
+            join(write(List.of(prepare(DELETE_USER_BY_ORGANIZATION).bind(previousOrganization, email)))
+                    .thenCompose(written -> moveUserCount(previousOrganization, null))
+                    .toCompletableFuture());
+        }
+        return new DeletedUser(true, previousOrganization);
+    }
+
+    @Override
+    public long backfillOrganizationIndex() {
+        long indexed = 0;
+        var statement = SimpleStatement.newInstance(SELECT_ALL_USERS)
+                .setExecutionProfileName(SCAN_PROFILE)
+                .setPageSize(backfillPageSize);
+        for (Row row : session.execute(statement)) {
+            var user = converter.read(User.class, row);
+            if (user.getOrganization() != null) {
+                session.execute(bindOrganizationIndex(user, true).setExecutionProfileName(WRITE_PROFILE));
+                indexed++;
+            }
+        }
+        return indexed;
+    }
+
+    @Override
+    public Map<String, Long> countUsersByOrganizations(Collection<String> organizations) {
+        // One single-partition read per organization, all in flight at once, instead of a multi-partition IN.
+        Map<String, CompletableFuture<AsyncResultSet>> reads = new LinkedHashMap<>();
+        organizations.forEach(organization -> reads.computeIfAbsent(organization, key ->
+                session.executeAsync(prepare(SELECT_USER_COUNT).bind(key)).toCompletableFuture()));
+        Map<String, Long> counts = new LinkedHashMap<>();
+        reads.forEach((organization, read) -> {
+            var row = join(read).one();
+            counts.put(organization, row == null ? 0 : row.getLong("users"));
+        });
+        return counts;
+    }
+
+    @Override
+    public long reconcileOrganizationUserCounts() {
+        var organizations = new TreeSet<String>();
+        for (var cql : List.of(SELECT_INDEXED_ORGANIZATIONS, SELECT_COUNTED_ORGANIZATIONS)) {
+            var statement = SimpleStatement.newInstance(cql)
+                    .setExecutionProfileName(SCAN_PROFILE)
+                    .setPageSize(backfillPageSize);
+            for (Row row : session.execute(statement)) {
+                organizations.add(row.getString("organization"));
+            }
+        }
+        long corrected = 0;
+        for (var organization : organizations) {
+            var counted = userCount(organization);
+            var actual = session.execute(prepare(COUNT_USERS_IN_ORGANIZATION).bind(organization)
+                    .setExecutionProfileName(SCAN_PROFILE)).one().getLong(0);
+            // A write to the organization while it was being recounted is left for the next run.
+            if (actual != counted && userCount(organization) == counted) {
+                session.execute(bindUserCount(organization, actual - counted));
+                corrected++;
+            }
+        }
+        return corrected;
+    }
+
+    @Override
+    public CompletableFuture<Void> scanUsers(Executor executor, Consumer<User> consumer) {
+        var tokenMap = session.getMetadata().getTokenMap()
+                .orElseThrow(() -> new IllegalStateException("Token metadata is not available"));
+        var scans = tokenMap.getTokenRanges().stream()
+                .flatMap(range -> range.splitEvenly(exportSplitsPerRange).stream())
+                .flatMap(range -> range.unwrap().stream())
+                .map(range -> CompletableFuture.runAsync(() -> scanTokenRange(range, consumer), executor))
+                .toArray(CompletableFuture[]::new);
+        return CompletableFuture.allOf(scans);
+    }
+
+    private void scanTokenRange(TokenRange range, Consumer<User> consumer) {
+        var statement = prepare(SELECT_USERS_IN_TOKEN_RANGE).bind()
+                .setToken(0, range.getStart())
+                .setToken(1, range.getEnd())
+                .setExecutionProfileName(SCAN_PROFILE)
+                .setPageSize(exportPageSize);
+        for (Row row : session.execute(statement)) {
+            consumer.accept(converter.read(User.class, row));
+        }
+    }
+
+    // Counter updates are not idempotent, so they are applied once the row itself has been written.
+    private CompletionStage<?> moveUserCount(String from, String to) {
+        if (Objects.equals(from, to)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        List<BatchableStatement<?>> updates = new ArrayList<>(2);
+        if (from != null) {
+            updates.add(bindUserCount(from, -1));
+        }
+        if (to != null) {
+            updates.add(bindUserCount(to, 1));
+        }
+        return session.executeAsync(BatchStatement.newInstance(DefaultBatchType.COUNTER, updates)
+                .setExecutionProfileName(WRITE_PROFILE)
+                .setIdempotent(false));
+    }
+
+    // A single statement is sent as is; more go in one LOGGED batch so the copies cannot diverge.
+    private CompletionStage<AsyncResultSet> write(List<BatchableStatement<?>> statements) {
+        var statement = statements.size() == 1
+                ? statements.get(0)
+                : BatchStatement.newInstance(DefaultBatchType.LOGGED, statements);
+        return session.executeAsync(statement.setExecutionProfileName(WRITE_PROFILE));
+    }
+
+    private BoundStatement bindUserCount(String organization, long delta) {
+        return prepare(UPDATE_USER_COUNT).bind(delta, organization)
+                .setExecutionProfileName(WRITE_PROFILE)
+                .setIdempotent(false);
+    }
+
+    private long userCount(String organization) {
+        var row = session.execute(prepare(SELECT_USER_COUNT).bind(organization)).one();
+        return row == null ? 0 : row.getLong("users");
+    }
+
+    private BoundStatement bindOrganizationIndex(User user, boolean replace) {
+        return bindText(prepare(INSERT_USER_BY_ORGANIZATION), replace,
+                user.getOrganization(),
+                user.getEmail(),
+                user.getFirstName(),
+                user.getLastName(),
+                user.getPassword(),
+                user.getPermissions());
+    }
+
+    // One prepared statement per set of updated columns, at most one per subset of the data columns.
+    private BoundStatement bindUpdate(String template, Map<String, String> values, String... key) {
+        var assignments = values.keySet().stream().map(column -> column + " = ?").collect(Collectors.joining(", "));
+        var builder = prepare(template.formatted(assignments)).boundStatementBuilder();
+        int i = 0;
+        for (var value : values.values()) {
+            builder.setString(i++, value);
+        }
+        for (var part : key) {
+            builder.setString(i++, part);
+        }
+        return builder.build();
+    }
+
+    private static void putIfSet(Map<String, String> values, String column, String value) {
+        if (value != null) {
+            values.put(column, value);
+        }
+    }
+
+    // A bound null writes a tombstone, which only pays off when it clears a value of an existing row.
+    // Otherwise nulls are left unset and nothing is written for them.
+    private static BoundStatement bindText(PreparedStatement statement, boolean replace, String... values) {
+        var builder = statement.boundStatementBuilder();
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null || replace) {
+                builder.setString(i, values[i]);
+            }
+        }
+        return builder.build();
+    }
+
+    private PreparedStatement prepare(String cql) {
+        return statements.computeIfAbsent(cql, session::prepare);
+    }
+
+    // Column sets are normalized by UserColumns, so there is one statement per distinct selection.
+    private PreparedStatement prepare(String template, Set<String> columns) {
+        return prepare(template.formatted(String.join(", ", UserColumns.of(columns))));
+    }
+
+    private List<User> readAll(ResultSet result) {
+        List<User> users = new ArrayList<>(result.getAvailableWithoutFetching());
+        for (Row row : result) {
+            users.add(converter.read(User.class, row));
+        }
+        return users;
+    }
+
+    // Reads a single page, like the derived Slice queries: the slice's pageable carries the next paging state.
+    // That is the driver's safe paging state, which is only accepted back for the statement it came from.
+    private Slice<User> readSlice(BoundStatement statement, Pageable pageable) {
+        var pagingState = pageable instanceof CassandraPageRequest request ? request.getPagingState() : null;
+        var result = session.execute(statement
+                .setPageSize(pageable.getPageSize())
+                .setPagingState(pagingState == null ? null : rawPagingState(pagingState, statement)));
+        List<User> users = new ArrayList<>(result.getAvailableWithoutFetching());
+        for (int i = result.getAvailableWithoutFetching(); i > 0; i--) {
+            users.add(converter.read(User.class, result.one()));
+        }
+        var nextPagingState = result.getExecutionInfo().getSafePagingState();
+        return new SliceImpl<>(users,
+                CassandraPageRequest.of(pageable, nextPagingState == null ? null : ByteBuffer.wrap(nextPagingState.toBytes())),
+                nextPagingState != null);
+    }
+
+    private ByteBuffer rawPagingState(ByteBuffer pagingState, BoundStatement statement) {
+        var bytes = new byte[pagingState.remaining()];
+        pagingState.duplicate().get(bytes);
+        PagingState safe;
+        try {
+            safe = PagingState.fromBytes(bytes);
+        } catch (IllegalArgumentException | BufferUnderflowException e) {
+            throw new InvalidDataAccessApiUsageException("Malformed paging state", e);
+        }
+        if (!safe.matches(statement, session)) {
+            throw new InvalidDataAccessApiUsageException("Paging state was issued for a different query");
+        }
+        return safe.getRawPagingState();
+    }
+
+    private static String organizationOf(Row row) {
+        return row == null ? null : row.getString("organization");
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.earlystart.kirichenkovthreatrix.dao;
+
+import com.earlystart.kirichenkovthreatrix.model.User;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Packs the non-key columns of a user into a single byte array: each column is its UTF-8 length
+ * (or -1 for null) followed by its bytes. One array per user instead of a {@link User} and five strings.
+ */
+final class UserRecord {
+
+    private UserRecord() {
+    }
+
+    static byte[] encode(User user) {
+        var out = new ByteArrayOutputStream(64);
+        write(out, user.getFirstName());
+        write(out, user.getLastName());
+        write(out, user.getPassword());
+        write(out, user.getOrganization());
+        write(out, user.getPermissions());
+        return out.toByteArray();
+    }
+
+    static User decode(String email, byte[] record) {
+        var buffer = ByteBuffer.wrap(record);
+        return User.builder()
+                .email(email)
+                .firstName(read(buffer))
+                .lastName(read(buffer))
+                .password(read(buffer))
+                .organization(read(buffer))
+                .permissions(read(buffer))
+                .build();
+    }
+
+    static String organization(byte[] record) {
+        var buffer = ByteBuffer.wrap(record);
+        for (int column = 0; column < 3; column++) {
+            skip(buffer);
+        }
+        return read(buffer);
+    }
+
+    private static void write(ByteArrayOutputStream out, String value) {
+        if (value == null) {
+            out.writeBytes(ByteBuffer.allocate(Integer.BYTES).putInt(-1).array());
+            return;
+        }
+        var bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeBytes(ByteBuffer.allocate(Integer.BYTES).putInt(bytes.length).array());
+        out.writeBytes(bytes);
+    }
+
+    private static String read(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        var value = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    private static void skip(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length > 0) {
+            buffer.position(buffer.position() + length);
+        }
+    }
+}
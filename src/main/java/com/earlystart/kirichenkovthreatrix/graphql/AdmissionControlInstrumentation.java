@@ -0,0 +1,127 @@
+package com.earlystart.kirichenkovthreatrix.graphql;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import graphql.ExecutionResult;
+import graphql.execution.instrumentation.InstrumentationContext;
+import graphql.execution.instrumentation.InstrumentationState;
+import graphql.execution.instrumentation.SimpleInstrumentationContext;
+import graphql.execution.instrumentation.SimplePerformantInstrumentation;
+import graphql.execution.instrumentation.parameters.InstrumentationExecuteOperationParameters;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Rejects operations before they run, based on their static {@link QueryCost}:
+ * <ul>
+ *     <li>above {@code max-cost}, {@code max-depth} or {@code max-aliases};</li>
+ *     <li>when the client has spent its cost budget (a token bucket per {@link #CLIENT_ID} context entry);</li>
+ *     <li>when the cost of the operations already running would go above {@code max-in-flight-cost}.
+ *     Operations costing at most {@code cheap-query-cost}, such as single-user lookups, are never shed.</li>
+ * </ul>
+ */
+@Slf4j
+@Order(0)
+@Component
+public class AdmissionControlInstrumentation extends SimplePerformantInstrumentation {
+    public static final String CLIENT_ID = "clientId";
+    private static final String UNKNOWN_CLIENT = "unknown";
+
+    private final QueryCostCalculator calculator;
+    private final long maxCost;
+    private final int maxDepth;
+    private final int maxAliases;
+    private final long maxInFlightCost;
+    private final long cheapQueryCost;
+    private final long clientCostPerSecond;
+    private final long clientBurst;
+    private final Ticker ticker;
+    private final Cache<String, CostBudget> budgets;
+    private final AtomicLong inFlightCost = new AtomicLong();
+
+    @Autowired
+    public AdmissionControlInstrumentation(@Value("${threatrix.graphql.cost.default-list-size:100}") long defaultListSize,
+                                           @Value("${threatrix.graphql.cost.max-cost:10000}") long maxCost,
+                                           @Value("${threatrix.graphql.cost.max-depth:10}") int maxDepth,
+                                           @Value("${threatrix.graphql.cost.max-aliases:20}") int maxAliases,
+                                           @Value("${threatrix.graphql.cost.max-in-flight-cost:100000}") long maxInFlightCost,
+                                           @Value("${threatrix.graphql.cost.cheap-query-cost:10}") long cheapQueryCost,
+                                           @Value("${threatrix.graphql.cost.client-budget.cost-per-second:20000}") long clientCostPerSecond,
+                                           @Value("${threatrix.graphql.cost.client-budget.burst:50000}") long clientBurst) {
+        this(new QueryCostCalculator(defaultListSize), maxCost, maxDepth, maxAliases, maxInFlightCost, cheapQueryCost,
+                clientCostPerSecond, clientBurst, Ticker.systemTicker());
+    }
+
+    AdmissionControlInstrumentation(QueryCostCalculator calculator, long maxCost, int maxDepth, int maxAliases,
+                                    long maxInFlightCost, long cheapQueryCost, long clientCostPerSecond, long clientBurst,
+                                    Ticker ticker) {
+        this.calculator = calculator;
+        this.maxCost = maxCost;
+        this.maxDepth = maxDepth;
+        this.maxAliases = maxAliases;
+        this.maxInFlightCost = maxInFlightCost;
+        this.cheapQueryCost = cheapQueryCost;
+        this.clientCostPerSecond = clientCostPerSecond;
+        this.clientBurst = clientBurst;
+        this.ticker = ticker;
+        this.budgets = Caffeine.newBuilder()
+                .expireAfterAccess(Duration.ofMinutes(10))
+                .ticker(ticker)
+                .build();
+    }
+
+    @Override
+    public InstrumentationContext<ExecutionResult> beginExecuteOperation(InstrumentationExecuteOperationParameters parameters,
+                                                                         InstrumentationState state) {
+        var context = parameters.getExecutionContext();
+        var queryCost = calculator.calculate(context.getGraphQLSchema(), context.getDocument(),
+                context.getExecutionInput().getOperationName(), context.getCoercedVariables());
+        long cost = queryCost.cost();
+        if (cost > maxCost) {
+            throw new QueryRejectedException(QueryRejectedException.TOO_EXPENSIVE, cost,
+                    "Query cost " + cost + " exceeds the maximum of " + maxCost);
+        }
+        if (queryCost.depth() > maxDepth) {
+            throw new QueryRejectedException(QueryRejectedException.TOO_EXPENSIVE, cost,
+                    "Query depth " + queryCost.depth() + " exceeds the maximum of " + maxDepth);
+        }
+        if (queryCost.aliases() > maxAliases) {
+            throw new QueryRejectedException(QueryRejectedException.TOO_EXPENSIVE, cost,
+                    "Query uses " + queryCost.aliases() + " aliases, the maximum is " + maxAliases);
+        }
+        String clientId = context.getGraphQLContext().getOrDefault(CLIENT_ID, UNKNOWN_CLIENT);
+        if (!admit(cost)) {
+            log.debug("Shedding query of cost {} from client {}, {} in flight", cost, clientId, inFlightCost.get());
+            throw new QueryRejectedException(QueryRejectedException.OVERLOADED, cost, "Server is overloaded, retry later");
+        }
+        if (!budgets.get(clientId, id -> new CostBudget(clientCostPerSecond, clientBurst, ticker)).tryAcquire(cost)) {
+            inFlightCost.addAndGet(-cost);
+            throw new QueryRejectedException(QueryRejectedException.BUDGET_EXHAUSTED, cost,
+                    "Query cost budget exhausted for client " + clientId + ", retry later");
+        }
+        return SimpleInstrumentationContext.whenCompleted((result, error) -> inFlightCost.addAndGet(-cost));
+    }
+
+    long inFlightCost() {
+        return inFlightCost.get();
+    }
+
+    private boolean admit(long cost) {
+        while (true) {
+            long current = inFlightCost.get();
+            if (cost > cheapQueryCost && current + cost > maxInFlightCost) {
+                return false;
+            }
+            if (inFlightCost.compareAndSet(current, current + cost)) {
+                return true;
+            }
+        }
+    }
+}
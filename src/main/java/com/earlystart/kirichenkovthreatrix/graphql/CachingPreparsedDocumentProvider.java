@@ -0,0 +1,63 @@
+package com.earlystart.kirichenkovthreatrix.graphql;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import graphql.ExecutionInput;
+import graphql.execution.preparsed.PreparsedDocumentEntry;
+import graphql.execution.preparsed.PreparsedDocumentProvider;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Keeps parsed and validated documents keyed by query text and operation name,
+ * so repeated query shapes skip parsing and validation against the schema.
+ * Documents with parse or validation errors are not cached.
+ */
+@Component
+public class CachingPreparsedDocumentProvider implements PreparsedDocumentProvider, MeterBinder {
+    private final Cache<DocumentKey, PreparsedDocumentEntry> cache;
+
+    public CachingPreparsedDocumentProvider(@Value("${threatrix.graphql.document-cache.max-size:500}") long maxSize) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+    }
+
+    @Override
+    public CompletableFuture<PreparsedDocumentEntry> getDocumentAsync(ExecutionInput executionInput,
+                                                                      Function<ExecutionInput, PreparsedDocumentEntry> parseAndValidateFunction) {
+        var key = new DocumentKey(executionInput.getQuery(), executionInput.getOperationName());
+        var entry = cache.getIfPresent(key);
+        if (entry == null) {
+            entry = parseAndValidateFunction.apply(executionInput);
+            if (!entry.hasErrors()) {
+                cache.put(key, entry);
+            }
+        }
+        return CompletableFuture.completedFuture(entry);
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "graphql.documents");
+    }
+
+    private record DocumentKey(String query, String operationName) {
+    }
+}
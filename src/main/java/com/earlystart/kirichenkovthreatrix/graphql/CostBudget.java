@@ -0,0 +1,34 @@
+package com.earlystart.kirichenkovthreatrix.graphql;
+
+import com.github.benmanes.caffeine.cache.Ticker;
+
+/**
+ * Token bucket of query cost for one client: holds up to {@code burst} and refills at
+ * {@code costPerSecond}.
+ */
+class CostBudget {
+    private final long burst;
+    private final double costPerNano;
+    private final Ticker ticker;
+    private double available;
+    private long refilledAt;
+
+    CostBudget(long costPerSecond, long burst, Ticker ticker) {
+        this.burst = burst;
+        this.costPerNano = costPerSecond / 1_000_000_000d;
+        this.ticker = ticker;
+        this.available = burst;
+        this.refilledAt = ticker.read();
+    }
+
+    synchronized boolean tryAcquire(long cost) {
+        long now = ticker.read();
+        available = Math.min(burst, available + (now - refilledAt) * costPerNano);
+        refilledAt = now;
+        if (cost > available) {
+            return false;
+        }
+        available -= cost;
+        return true;
+    }
+}
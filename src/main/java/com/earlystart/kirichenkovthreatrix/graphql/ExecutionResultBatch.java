@@ -0,0 +1,11 @@
+package com.earlystart.kirichenkovthreatrix.graphql;
+
+import graphql.ExecutionResult;
+
+import java.util.List;
+
+/**
+ * Results of a batched request, in the order of its operations. Written as a JSON array.
+ */
+public record ExecutionResultBatch(List<ExecutionResult> results) {
+}
@@ -0,0 +1,145 @@
+package com.earlystart.kirichenkovthreatrix.graphql;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.JsonRecyclerPools;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import graphql.ExecutionResult;
+import graphql.GraphQLError;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes an {@link ExecutionResult}, or the array of an {@link ExecutionResultBatch}, straight to the
+ * response stream in the GraphQL specification layout, walking the result tree with a streaming generator instead of building
+ * {@code toSpecification()} and handing it to Jackson's map serializer. Generator buffers come from
+ * a lock-free shared pool, which also works when requests run on virtual threads.
+ */
+@Component
+public class ExecutionResultHttpMessageConverter extends AbstractHttpMessageConverter<Object> {
+    private final ObjectMapper objectMapper;
+    private final JsonFactory jsonFactory;
+
+    public ExecutionResultHttpMessageConverter(ObjectMapper objectMapper) {
+        super(MediaType.APPLICATION_JSON, new MediaType("application", "*+json"));
+        this.objectMapper = objectMapper;
+        this.jsonFactory = objectMapper.getFactory().rebuild()
+                .recyclerPool(JsonRecyclerPools.sharedLockFreePool())
+                .build();
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return ExecutionResult.class.isAssignableFrom(clazz) || ExecutionResultBatch.class == clazz;
+    }
+
+    @Override
+    protected boolean canRead(MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("GraphQL results cannot be read", inputMessage);
+    }
+
+    @Override
+    protected void writeInternal(Object value, HttpOutputMessage outputMessage) throws IOException {
+        if (value instanceof ExecutionResultBatch batch) {
+            write(batch, outputMessage.getBody());
+        } else {
+            write((ExecutionResult) value, outputMessage.getBody());
+        }
+    }
+
+    public void write(ExecutionResult result, OutputStream out) throws IOException {
+        try (var generator = createGenerator(out)) {
+            writeResult(generator, result);
+        }
+    }
+
+    public void write(ExecutionResultBatch batch, OutputStream out) throws IOException {
+        try (var generator = createGenerator(out)) {
+            generator.writeStartArray();
+            for (ExecutionResult result : batch.results()) {
+                writeResult(generator, result);
+            }
+            generator.writeEndArray();
+        }
+    }
+
+    private JsonGenerator createGenerator(OutputStream out) throws IOException {
+        var generator = jsonFactory.createGenerator(out, JsonEncoding.UTF8);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.setCodec(objectMapper);
+        return generator;
+    }
+
+    private static void writeResult(JsonGenerator generator, ExecutionResult result) throws IOException {
+        generator.writeStartObject();
+        if (!result.getErrors().isEmpty()) {
+            generator.writeArrayFieldStart("errors");
+            for (GraphQLError error : result.getErrors()) {
+                writeValue(generator, error.toSpecification());
+            }
+            generator.writeEndArray();
+        }
+        if (result.isDataPresent()) {
+            generator.writeFieldName("data");
+            writeValue(generator, result.getData());
+        }
+        if (result.getExtensions() != null) {
+            generator.writeFieldName("extensions");
+            writeValue(generator, result.getExtensions());
+        }
+        generator.writeEndObject();
+    }
+
+    private static void writeValue(JsonGenerator generator, Object value) throws IOException {
+        if (value == null) {
+            generator.writeNull();
+        } else if (value instanceof String string) {
+            generator.writeString(string);
+        } else if (value instanceof Map<?, ?> map) {
+            generator.writeStartObject();
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                generator.writeFieldName(String.valueOf(entry.getKey()));
+                writeValue(generator, entry.getValue());
+            }
+            generator.writeEndObject();
+        } else if (value instanceof List<?> list) {
+            generator.writeStartArray();
+            for (Object item : list) {
+                writeValue(generator, item);
+            }
+            generator.writeEndArray();
+        } else if (value instanceof Boolean bool) {
+            generator.writeBoolean(bool);
+        } else if (value instanceof Integer number) {
+            generator.writeNumber(number);
+        } else if (value instanceof Long number) {
+            generator.writeNumber(number);
+        } else if (value instanceof Double number) {
+            generator.writeNumber(number);
+        } else if (value instanceof BigDecimal number) {
+            generator.writeNumber(number);
+        } else if (value instanceof BigInteger number) {
+            generator.writeNumber(number);
+        } else {
+            // Anything a custom scalar may return, serialized with the application ObjectMapper settings.
+            generator.writeObject(value);
+        }
+    }
+}
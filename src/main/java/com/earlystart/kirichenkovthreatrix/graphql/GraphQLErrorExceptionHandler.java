@@ -0,0 +1,31 @@
+package com.earlystart.kirichenkovthreatrix.graphql;
+
+import graphql.GraphQLError;
+import graphql.GraphqlErrorBuilder;
+import graphql.execution.DataFetcherExceptionHandler;
+import graphql.execution.DataFetcherExceptionHandlerParameters;
+import graphql.execution.DataFetcherExceptionHandlerResult;
+import graphql.execution.SimpleDataFetcherExceptionHandler;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Reports a resolver exception that is itself a {@link GraphQLError} with its own classification and
+ * extensions, at the field that threw it. Any other exception is reported as graphql-java does by default.
+ */
+public class GraphQLErrorExceptionHandler implements DataFetcherExceptionHandler {
+    private final DataFetcherExceptionHandler fallback = new SimpleDataFetcherExceptionHandler();
+
+    @Override
+    public CompletableFuture<DataFetcherExceptionHandlerResult> handleException(DataFetcherExceptionHandlerParameters parameters) {
+        if (!(parameters.getException() instanceof GraphQLError error)) {
+            return fallback.handleException(parameters);
+        }
+        var reported = GraphqlErrorBuilder.newError(parameters.getDataFetchingEnvironment())
+                .message(error.getMessage())
+                .errorType(error.getErrorType())
+                .extensions(error.getExtensions())
+                .build();
+        return CompletableFuture.completedFuture(DataFetcherExceptionHandlerResult.newResult(reported).build());
+    }
+}
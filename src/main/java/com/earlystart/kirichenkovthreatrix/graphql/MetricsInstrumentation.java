@@ -0,0 +1,144 @@
+package com.earlystart.kirichenkovthreatrix.graphql;
+
+import graphql.ExecutionResult;
+import graphql.GraphQLError;
+import graphql.execution.instrumentation.FieldFetchingInstrumentationContext;
+import graphql.execution.instrumentation.InstrumentationContext;
+import graphql.execution.instrumentation.InstrumentationState;
+import graphql.execution.instrumentation.SimpleInstrumentationContext;
+import graphql.execution.instrumentation.SimplePerformantInstrumentation;
+import graphql.execution.instrumentation.parameters.InstrumentationCreateStateParameters;
+import graphql.execution.instrumentation.parameters.InstrumentationExecuteOperationParameters;
+import graphql.execution.instrumentation.parameters.InstrumentationExecutionParameters;
+import graphql.execution.instrumentation.parameters.InstrumentationFieldFetchParameters;
+import graphql.execution.instrumentation.parameters.InstrumentationValidationParameters;
+import graphql.language.Document;
+import graphql.validation.ValidationError;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records GraphQL latencies in Micrometer:
+ * <ul>
+ *     <li>{@code graphql.request} - whole operation, tagged by operation name and outcome</li>
+ *     <li>{@code graphql.phase} - parsing and validation, which only run on a document cache miss</li>
+ *     <li>{@code graphql.datafetcher} - resolvers, tagged by {@code Type.field}; plain property reads are skipped</li>
+ *     <li>{@code graphql.errors} - errors returned to the client, tagged by operation name and classification</li>
+ * </ul>
+ */
+@Component
+public class MetricsInstrumentation extends SimplePerformantInstrumentation {
+    public static final String REQUEST_METRIC = "graphql.request";
+    public static final String PHASE_METRIC = "graphql.phase";
+    public static final String DATA_FETCHER_METRIC = "graphql.datafetcher";
+    public static final String ERRORS_METRIC = "graphql.errors";
+    static final String ANONYMOUS = "anonymous";
+
+    private final Meter.MeterProvider<Timer> requestTimers;
+    private final Meter.MeterProvider<Timer> phaseTimers;
+    private final Meter.MeterProvider<Timer> dataFetcherTimers;
+    private final Meter.MeterProvider<Counter> errorCounters;
+
+    public MetricsInstrumentation(MeterRegistry registry) {
+        this.requestTimers = Timer.builder(REQUEST_METRIC)
+                .description("GraphQL operation latency")
+                .withRegistry(registry);
+        this.phaseTimers = Timer.builder(PHASE_METRIC)
+                .description("GraphQL parse and validation latency")
+                .withRegistry(registry);
+        this.dataFetcherTimers = Timer.builder(DATA_FETCHER_METRIC)
+                .description("GraphQL resolver latency")
+                .withRegistry(registry);
+        this.errorCounters = Counter.builder(ERRORS_METRIC)
+                .description("GraphQL errors returned to clients")
+                .withRegistry(registry);
+    }
+
+    @Override
+    public InstrumentationState createState(InstrumentationCreateStateParameters parameters) {
+        return new OperationState(parameters.getExecutionInput().getOperationName());
+    }
+
+    @Override
+    public InstrumentationContext<ExecutionResult> beginExecution(InstrumentationExecutionParameters parameters,
+                                                                  InstrumentationState state) {
+        var operation = (OperationState) state;
+        long start = System.nanoTime();
+        return SimpleInstrumentationContext.whenCompleted((result, error) -> {
+            var errors = result == null ? List.<GraphQLError>of() : result.getErrors();
+            var outcome = error == null && errors.isEmpty() ? "success" : "error";
+            requestTimers.withTags("operation", operation.name, "outcome", outcome)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            for (var graphQLError : errors) {
+                errorCounters.withTags("operation", operation.name, "classification", classification(graphQLError))
+                        .increment();
+            }
+            if (error != null) {
+                errorCounters.withTags("operation", operation.name, "classification", error.getClass().getSimpleName())
+                        .increment();
+            }
+        });
+    }
+
+    @Override
+    public InstrumentationContext<Document> beginParse(InstrumentationExecutionParameters parameters,
+                                                       InstrumentationState state) {
+        return phase("parse");
+    }
+
+    @Override
+    public InstrumentationContext<List<ValidationError>> beginValidation(InstrumentationValidationParameters parameters,
+                                                                         InstrumentationState state) {
+        return phase("validation");
+    }
+
+    @Override
+    public InstrumentationContext<ExecutionResult> beginExecuteOperation(InstrumentationExecuteOperationParameters parameters,
+                                                                         InstrumentationState state) {
+        var name = parameters.getExecutionContext().getOperationDefinition().getName();
+        if (name != null) {
+            ((OperationState) state).name = name;
+        }
+        return SimpleInstrumentationContext.noOp();
+    }
+
+    @Override
+    public FieldFetchingInstrumentationContext beginFieldFetching(InstrumentationFieldFetchParameters parameters,
+                                                                  InstrumentationState state) {
+        if (parameters.isTrivialDataFetcher()) {
+            return FieldFetchingInstrumentationContext.NOOP;
+        }
+        var stepInfo = parameters.getExecutionStepInfo();
+        var field = stepInfo.getFieldContainer().getName() + "." + stepInfo.getFieldDefinition().getName();
+        long start = System.nanoTime();
+        return FieldFetchingInstrumentationContext.adapter(SimpleInstrumentationContext.whenCompleted((value, error) ->
+                dataFetcherTimers.withTags("field", field, "outcome", error == null ? "success" : "error")
+                        .record(System.nanoTime() - start, TimeUnit.NANOSECONDS)));
+    }
+
+    private <T> InstrumentationContext<T> phase(String phase) {
+        long start = System.nanoTime();
+        return SimpleInstrumentationContext.whenCompleted((value, error) ->
+                phaseTimers.withTags("phase", phase)
+                        .record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+    }
+
+    private static String classification(GraphQLError error) {
+        return error.getErrorType() == null ? "unknown" : error.getErrorType().toString();
+    }
+
+    private static final class OperationState implements InstrumentationState {
+        // Replaced by the name of the selected operation once the document has been parsed.
+        private volatile String name;
+
+        private OperationState(String name) {
+            this.name = name == null ? ANONYMOUS : name;
+        }
+    }
+}
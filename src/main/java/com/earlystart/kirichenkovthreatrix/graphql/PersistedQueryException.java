@@ -0,0 +1,47 @@
+package com.earlystart.kirichenkovthreatrix.graphql;
+
+import graphql.ErrorClassification;
+import graphql.ErrorType;
+import graphql.GraphQLError;
+import graphql.GraphQLException;
+import graphql.language.SourceLocation;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A persisted query that could not be resolved. {@code PERSISTED_QUERY_NOT_FOUND} uses the message
+ * Apollo clients look for before retrying with the full query text.
+ */
+public class PersistedQueryException extends GraphQLException implements GraphQLError {
+    public static final String NOT_FOUND = "PERSISTED_QUERY_NOT_FOUND";
+    public static final String HASH_MISMATCH = "PERSISTED_QUERY_HASH_MISMATCH";
+    public static final String NOT_ALLOWED = "PERSISTED_QUERY_NOT_ALLOWED";
+    public static final String INVALID = "PERSISTED_QUERY_INVALID";
+
+    private final String code;
+
+    public PersistedQueryException(String code, String message) {
+        super(message);
+        this.code = code;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    @Override
+    public List<SourceLocation> getLocations() {
+        return null;
+    }
+
+    @Override
+    public ErrorClassification getErrorType() {
+        return ErrorType.ValidationError;
+    }
+
+    @Override
+    public Map<String, Object> getExtensions() {
+        return Map.of("code", code);
+    }
+}
@@ -0,0 +1,138 @@
+package com.earlystart.kirichenkovthreatrix.graphql;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+
+/**
+ * Resolves Apollo-style automatic persisted queries: the client sends
+ * {@code extensions.persistedQuery.sha256Hash} instead of the query text, and the full text only
+ * when the server answers {@code PersistedQueryNotFound}. The text is then registered under its hash.
+ * <p>
+ * Registered queries are kept in a bounded cache. Queries preloaded from
+ * {@code threatrix.graphql.persisted-queries.preload} (a JSON object of hash to query) are never
+ * evicted. With {@code allowlist-only}, only preloaded queries are accepted, by hash or by text.
+ */
+@Slf4j
+@Component
+public class PersistedQueryStore {
+    public static final String METRIC = "graphql.persisted.queries";
+    private static final int SUPPORTED_VERSION = 1;
+
+    private final Map<String, String> preloaded;
+    private final Cache<String, String> registered;
+    private final boolean allowlistOnly;
+    private final Meter.MeterProvider<Counter> lookups;
+
+    public PersistedQueryStore(ObjectMapper objectMapper,
+                               ResourceLoader resourceLoader,
+                               MeterRegistry registry,
+                               @Value("${threatrix.graphql.persisted-queries.max-size:10000}") long maxSize,
+                               @Value("${threatrix.graphql.persisted-queries.allowlist-only:false}") boolean allowlistOnly,
+                               @Value("${threatrix.graphql.persisted-queries.preload:}") String preload) throws IOException {
+        this.preloaded = preload(objectMapper, resourceLoader, preload);
+        this.registered = Caffeine.newBuilder().maximumSize(maxSize).build();
+        this.allowlistOnly = allowlistOnly;
+        this.lookups = Counter.builder(METRIC)
+                .description("Persisted query lookups by result")
+                .withRegistry(registry);
+        Gauge.builder(METRIC + ".size", registered, cache -> cache.estimatedSize() + preloaded.size())
+                .description("Persisted queries known to this instance")
+                .register(registry);
+    }
+
+    /**
+     * Returns the query text to execute for a request body's {@code query} and {@code extensions}.
+     *
+     * @throws PersistedQueryException if the hash is unknown, does not match the query, or the query is not allowed
+     */
+    public String resolve(String query, Map<String, Object> extensions) {
+        var persistedQuery = extensions == null ? null : extensions.get("persistedQuery");
+        if (!(persistedQuery instanceof Map<?, ?> persisted)) {
+            if (allowlistOnly && (query == null || !preloaded.containsKey(sha256(query)))) {
+                throw rejected(PersistedQueryException.NOT_ALLOWED, "Only allowlisted persisted queries are accepted");
+            }
+            return query;
+        }
+        if (!(persisted.get("version") instanceof Number version) || version.intValue() != SUPPORTED_VERSION
+                || !(persisted.get("sha256Hash") instanceof String hash)) {
+            throw rejected(PersistedQueryException.INVALID, "Unsupported persistedQuery extension");
+        }
+        var key = hash.toLowerCase();
+        var known = lookup(key);
+        if (known != null) {
+            lookups.withTags("result", "hit").increment();
+            return known;
+        }
+        if (query == null) {
+            lookups.withTags("result", "miss").increment();
+            throw new PersistedQueryException(PersistedQueryException.NOT_FOUND, "PersistedQueryNotFound");
+        }
+        if (!sha256(query).equals(key)) {
+            throw rejected(PersistedQueryException.HASH_MISMATCH, "provided sha does not match query");
+        }
+        if (allowlistOnly) {
+            throw rejected(PersistedQueryException.NOT_ALLOWED, "Only allowlisted persisted queries are accepted");
+        }
+        registered.put(key, query);
+        lookups.withTags("result", "registered").increment();
+        return query;
+    }
+
+    private String lookup(String hash) {
+        var query = preloaded.get(hash);
+        return query != null ? query : registered.getIfPresent(hash);
+    }
+
+    private PersistedQueryException rejected(String code, String message) {
+        lookups.withTags("result", "rejected").increment();
+        return new PersistedQueryException(code, message);
+    }
+
+    private static Map<String, String> preload(ObjectMapper objectMapper, ResourceLoader resourceLoader,
+                                               String location) throws IOException {
+        if (location == null || location.isBlank()) {
+            return Map.of();
+        }
+        Map<String, String> queries;
+        try (var in = resourceLoader.getResource(location).getInputStream()) {
+            queries = objectMapper.readValue(in, new TypeReference<Map<String, String>>() {
+            });
+        }
+        Map<String, String> byHash = new HashMap<>();
+        queries.forEach((hash, query) -> {
+            if (!sha256(query).equalsIgnoreCase(hash)) {
+                throw new IllegalStateException("Persisted query " + hash + " in " + location + " does not match its hash");
+            }
+            byHash.put(hash.toLowerCase(), query);
+        });
+        log.info("Preloaded {} persisted queries from {}", byHash.size(), location);
+        return Map.copyOf(byHash);
+    }
+
+    static String sha256(String query) {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256").digest(query.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.earlystart.kirichenkovthreatrix.graphql;
+
+/**
+ * Static cost of an operation: {@code cost} is the estimated number of fields resolved, with list
+ * fields multiplying their selections by the number of items they may return.
+ */
+public record QueryCost(long cost, int depth, int aliases) {
+}
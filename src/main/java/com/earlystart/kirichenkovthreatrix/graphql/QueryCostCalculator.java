@@ -0,0 +1,100 @@
+package com.earlystart.kirichenkovthreatrix.graphql;
+
+import graphql.analysis.QueryTraverser;
+import graphql.analysis.QueryVisitorFieldEnvironment;
+import graphql.analysis.QueryVisitorStub;
+import graphql.execution.CoercedVariables;
+import graphql.language.Document;
+import graphql.schema.GraphQLSchema;
+import graphql.schema.GraphQLTypeUtil;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Estimates the cost of an operation before it runs. Every field costs 1. A field with a {@code limit}
+ * or {@code first} argument multiplies the cost of its selections by that value; any other list field
+ * multiplies it by {@code defaultListSize}, unless its parent already had a size argument (the
+ * {@code edges} of a connection).
+ */
+public class QueryCostCalculator {
+    private static final List<String> SIZE_ARGUMENTS = List.of("limit", "first");
+
+    private final long defaultListSize;
+
+    public QueryCostCalculator(long defaultListSize) {
+        this.defaultListSize = defaultListSize;
+    }
+
+    public QueryCost calculate(GraphQLSchema schema, Document document, String operationName, CoercedVariables variables) {
+        var traverser = QueryTraverser.newQueryTraverser()
+                .schema(schema)
+                .document(document)
+                .operationName(operationName)
+                .coercedVariables(variables)
+                .build();
+        var visitor = new CostVisitor();
+        traverser.visitPostOrder(visitor);
+        return new QueryCost(visitor.childCosts.getOrDefault(null, 0L), visitor.depth, visitor.aliases);
+    }
+
+    private long multiplier(QueryVisitorFieldEnvironment env) {
+        var size = sizeArgument(env);
+        if (size != null) {
+            return Math.max(size, 0);
+        }
+        if (!GraphQLTypeUtil.isList(GraphQLTypeUtil.unwrapNonNull(env.getFieldDefinition().getType()))) {
+            return 1;
+        }
+        var parent = env.getParentEnvironment();
+        return parent != null && sizeArgument(parent) != null ? 1 : defaultListSize;
+    }
+
+    private static Long sizeArgument(QueryVisitorFieldEnvironment env) {
+        for (var name : SIZE_ARGUMENTS) {
+            if (env.getArguments().get(name) instanceof Number size) {
+                return size.longValue();
+            }
+        }
+        return null;
+    }
+
+    private final class CostVisitor extends QueryVisitorStub {
+        // Costs of the selections visited so far, keyed by their parent field (null for the operation).
+        private final Map<QueryVisitorFieldEnvironment, Long> childCosts = new HashMap<>();
+        private int depth;
+        private int aliases;
+
+        @Override
+        public void visitField(QueryVisitorFieldEnvironment env) {
+            if (env.isTypeNameIntrospectionField()) {
+                return;
+            }
+            long cost = saturatedAdd(1, saturatedMultiply(multiplier(env), childCosts.getOrDefault(env, 0L)));
+            childCosts.merge(env.getParentEnvironment(), cost, QueryCostCalculator::saturatedAdd);
+            if (env.getField().getAlias() != null) {
+                aliases++;
+            }
+            depth = Math.max(depth, depthOf(env));
+        }
+    }
+
+    private static int depthOf(QueryVisitorFieldEnvironment env) {
+        int depth = 0;
+        for (var current = env; current != null; current = current.getParentEnvironment()) {
+            depth++;
+        }
+        return depth;
+    }
+
+    // Costs are never negative, so overflow only needs to be caught in one direction.
+    private static long saturatedAdd(long a, long b) {
+        long sum = a + b;
+        return sum < 0 ? Long.MAX_VALUE : sum;
+    }
+
+    private static long saturatedMultiply(long a, long b) {
+        return b != 0 && a > Long.MAX_VALUE / b ? Long.MAX_VALUE : a * b;
+    }
+}
@@ -0,0 +1,33 @@
+package com.earlystart.kirichenkovthreatrix.graphql;
+
+import graphql.execution.AbortExecutionException;
+
+import java.util.Map;
+
+/**
+ * Aborts an operation before execution. Returned to the client as a GraphQL error whose
+ * {@code extensions.code} tells why it was rejected and whether retrying later can help.
+ */
+public class QueryRejectedException extends AbortExecutionException {
+    public static final String TOO_EXPENSIVE = "QUERY_TOO_EXPENSIVE";
+    public static final String BUDGET_EXHAUSTED = "COST_BUDGET_EXHAUSTED";
+    public static final String OVERLOADED = "SERVER_OVERLOADED";
+
+    private final String code;
+    private final long cost;
+
+    public QueryRejectedException(String code, long cost, String message) {
+        super(message);
+        this.code = code;
+        this.cost = cost;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    @Override
+    public Map<String, Object> getExtensions() {
+        return Map.of("code", code, "cost", cost);
+    }
+}
@@ -0,0 +1,143 @@
+package com.earlystart.kirichenkovthreatrix.graphql;
+
+import com.earlystart.kirichenkovthreatrix.model.User;
+import com.earlystart.kirichenkovthreatrix.model.UserUpdate;
+import com.earlystart.kirichenkovthreatrix.service.user.UserDataLoaders;
+import com.earlystart.kirichenkovthreatrix.service.user.UserSelection;
+import com.earlystart.kirichenkovthreatrix.service.user.UserService;
+import com.earlystart.kirichenkovthreatrix.service.user.UserServiceImpl;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import graphql.schema.DataFetchingEnvironment;
+import graphql.schema.GraphQLSchema;
+import graphql.schema.idl.RuntimeWiring;
+import graphql.schema.idl.SchemaGenerator;
+import graphql.schema.idl.SchemaParser;
+import graphql.schema.idl.SchemaPrinter;
+import io.leangen.graphql.GraphQLSchemaGenerator;
+import org.dataloader.DataLoader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The GraphQL schema of {@link UserService}. The annotations on {@link UserServiceImpl} define it, and
+ * {@link #main(String[])} prints it at build time to {@value #SDL_LOCATION}. At runtime the schema is
+ * parsed from that file and its root fields are bound to the service by {@link #wiring}, which avoids
+ * SPQR's reflective schema generation on every start. {@code UserSchemaTest} fails when the file or
+ * the bindings fall behind the annotations.
+ */
+public final class UserSchema {
+    public static final String SDL_LOCATION = "graphql-client/schema.graphqls";
+
+    private UserSchema() {
+    }
+
+    public static GraphQLSchema generate(UserService userService) {
+        return new GraphQLSchemaGenerator()
+                .withOperationsFromSingleton(userService)
+                .generate();
+    }
+
+    /**
+     * Generates the schema from the annotations of {@code serviceType} without an instance of it, for printing.
+     * Operations of the returned schema cannot be executed.
+     */
+    public static GraphQLSchema generate(Class<? extends UserService> serviceType) {
+        return new GraphQLSchemaGenerator()
+                .withOperationsFromBean(() -> {
+                    throw new IllegalStateException("Schema generated from " + serviceType.getName() + " has no service to call");
+                }, serviceType)
+                .generate();
+    }
+
+    public static GraphQLSchema load(String sdl, UserService userService, ObjectMapper objectMapper) {
+        return new SchemaGenerator().makeExecutableSchema(new SchemaParser().parse(sdl), wiring(userService, objectMapper));
+    }
+
+    public static String readSdl() throws IOException {
+        try (InputStream in = UserSchema.class.getClassLoader().getResourceAsStream(SDL_LOCATION)) {
+            return in == null ? null : new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    public static String print(GraphQLSchema schema) {
+        return new SchemaPrinter().print(schema);
+    }
+
+    static RuntimeWiring wiring(UserService userService, ObjectMapper objectMapper) {
+        return RuntimeWiring.newRuntimeWiring()
+                .type("Query", type -> type
+                        .dataFetcher("getAllUsers", env -> userService.getAllUsers(
+                                env.getArgument("startAfterEmail"),
+                                env.<Integer>getArgument("limit"),
+                                UserSelection.columns(env.getSelectionSet())))
+                        .dataFetcher("getAllUsersConnection", env -> userService.getAllUsersConnection(
+                                env.<Integer>getArgument("first"),
+                                env.getArgument("after"),
+                                UserSelection.columns(env.getSelectionSet())))
+                        .dataFetcher("getUserByEmail", env -> userByEmail(userService, env))
+                        .dataFetcher("getUsersByOrganization", env -> userService.getUsersByOrganization(
+                                env.getArgument("organization"),
+                                env.getArgument("startAfterEmail"),
+                                env.<Integer>getArgument("limit"),
+                                UserSelection.columns(env.getSelectionSet())))
+                        .dataFetcher("getUsersByOrganizationConnection", env -> userService.getUsersByOrganizationConnection(
+                                env.getArgument("organization"),
+                                env.<Integer>getArgument("first"),
+                                env.getArgument("after"),
+                                UserSelection.columns(env.getSelectionSet())))
+                        .dataFetcher("organizationUserCount", env -> userService.organizationUserCount(env.getArgument("organization")))
+                        .dataFetcher("organizationStats", env -> userService.organizationStats(env.getArgument("organizations"))))
+                .type("Mutation", type -> type
+                        .dataFetcher("createUser", env -> userService.createUser(user(objectMapper, env.getArgument("user"))))
+                        .dataFetcher("createUsers", env -> userService.createUsers(users(objectMapper, env.getArgument("users"))))
+                        .dataFetcher("createOrUpdateUser", env ->
+                                userService.createOrUpdateUser(user(objectMapper, env.getArgument("user"))))
+                        .dataFetcher("upsertUsers", env -> userService.upsertUsers(users(objectMapper, env.getArgument("users"))))
+                        .dataFetcher("updateUser", env -> userService.updateUser(
+                                objectMapper.convertValue(env.getArgument("user"), UserUpdate.class)))
+                        .dataFetcher("deleteUser", env -> {
+                            userService.deleteUser(env.getArgument("email"));
+                            return true;
+                        })
+                        .dataFetcher("deleteUserIfExists", env -> userService.deleteUserIfExists(env.getArgument("email"))))
+                .type("Subscription", type -> type
+                        .dataFetcher("userChanged", env -> userService.userChanged(env.getArgument("organization"))))
+                .build();
+    }
+
+    // Same lookup as UserServiceImpl#getUserByEmail(String, ResolutionEnvironment).
+    private static CompletableFuture<User> userByEmail(UserService userService, DataFetchingEnvironment env) {
+        String email = env.getArgument("email");
+        DataLoader<String, User> loader = env.getDataLoader(UserDataLoaders.USER_BY_EMAIL);
+        if (loader == null) {
+            return CompletableFuture.completedFuture(userService.getUserByEmail(email));
+        }
+        return loader.load(email);
+    }
+
+    private static User user(ObjectMapper objectMapper, Map<String, Object> input) {
+        return input == null ? null : objectMapper.convertValue(input, User.class);
+    }
+
+    private static List<User> users(ObjectMapper objectMapper, List<Map<String, Object>> input) {
+        return input == null ? null : input.stream().map(user -> user(objectMapper, user)).toList();
+    }
+
+    /**
+     * Writes the schema generated from the annotations to the given file, {@code src/main/resources/}{@value #SDL_LOCATION}
+     * when run by the {@code schema} Maven profile.
+     */
+    public static void main(String[] args) throws IOException {
+        var sdl = print(generate(UserServiceImpl.class));
+        var target = Path.of(args[0]);
+        Files.createDirectories(target.getParent());
+        Files.writeString(target, sdl, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,15 @@
+package com.earlystart.kirichenkovthreatrix.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OrganizationStats {
+    private String organization;
+    private int userCount;
+}
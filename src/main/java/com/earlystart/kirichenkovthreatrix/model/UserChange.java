@@ -0,0 +1,26 @@
+package com.earlystart.kirichenkovthreatrix.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class UserChange {
+    private UserChangeType type;
+    private String email;
+    private String organization;
+    // The user as written, null for deletions.
+    private User user;
+
+    public static UserChange of(UserChangeType type, User user) {
+        return new UserChange(type, user.getEmail(), user.getOrganization(), user);
+    }
+
+    public static UserChange deleted(String email, String organization) {
+        return new UserChange(UserChangeType.DELETED, email, organization, null);
+    }
+}
@@ -0,0 +1,7 @@
+package com.earlystart.kirichenkovthreatrix.model;
+
+public enum UserChangeType {
+    CREATED,
+    UPDATED,
+    DELETED
+}
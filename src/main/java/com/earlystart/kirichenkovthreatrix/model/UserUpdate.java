@@ -0,0 +1,47 @@
+package com.earlystart.kirichenkovthreatrix.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+
+/**
+ * Partial update of the user with the given email. Properties left {@code null} keep their stored value.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class UserUpdate {
+    @NotNull(message = "Email cannot be null")
+    private String email;
+
+    @Size(min = 1, message = "First name cannot be empty")
+    private String firstName;
+
+    @Size(min = 1, message = "Last name cannot be empty")
+    private String lastName;
+
+    @Size(min = 1, message = "Password cannot be empty")
+    private String password;
+
+    private String organization;
+    private String permissions;
+
+    public User applyTo(User user) {
+        return new User(
+                user.getEmail(),
+                orElse(firstName, user.getFirstName()),
+                orElse(lastName, user.getLastName()),
+                orElse(password, user.getPassword()),
+                orElse(organization, user.getOrganization()),
+                orElse(permissions, user.getPermissions()));
+    }
+
+    private static String orElse(String value, String current) {
+        return value != null ? value : current;
+    }
+}
@@ -0,0 +1,24 @@
+package com.earlystart.kirichenkovthreatrix.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class UserWriteResult {
+    private String email;
+    private boolean success;
+    private String error;
+
+    public static UserWriteResult success(String email) {
+        return new UserWriteResult(email, true, null);
+    }
+
+    public static UserWriteResult failure(String email, String error) {
+        return new UserWriteResult(email, false, error);
+    }
+}
@@ -0,0 +1,30 @@
+package com.earlystart.kirichenkovthreatrix.service.user;
+
+import graphql.ErrorClassification;
+import graphql.ErrorType;
+import graphql.GraphQLError;
+import graphql.language.SourceLocation;
+
+import javax.validation.ValidationException;
+import java.util.List;
+
+/**
+ * A connection cursor that is malformed or was issued for a different query. Reported to the client
+ * as a GraphQL validation error.
+ */
+public class InvalidCursorException extends ValidationException implements GraphQLError {
+
+    public InvalidCursorException() {
+        super("Invalid cursor");
+    }
+
+    @Override
+    public List<SourceLocation> getLocations() {
+        return null;
+    }
+
+    @Override
+    public ErrorClassification getErrorType() {
+        return ErrorType.ValidationError;
+    }
+}
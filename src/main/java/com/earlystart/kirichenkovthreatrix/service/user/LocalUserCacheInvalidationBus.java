@@ -0,0 +1,19 @@
+package com.earlystart.kirichenkovthreatrix.service.user;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+public class LocalUserCacheInvalidationBus implements UserCacheInvalidationBus {
+    private final List<Consumer<String>> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void publish(String email) {
+        listeners.forEach(listener -> listener.accept(email));
+    }
+
+    @Override
+    public void subscribe(Consumer<String> listener) {
+        listeners.add(listener);
+    }
+}
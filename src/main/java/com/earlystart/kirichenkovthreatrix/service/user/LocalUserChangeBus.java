@@ -0,0 +1,21 @@
+package com.earlystart.kirichenkovthreatrix.service.user;
+
+import com.earlystart.kirichenkovthreatrix.model.UserChange;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+public class LocalUserChangeBus implements UserChangeBus {
+    private final List<Consumer<UserChange>> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void publish(UserChange change) {
+        listeners.forEach(listener -> listener.accept(change));
+    }
+
+    @Override
+    public void subscribe(Consumer<UserChange> listener) {
+        listeners.add(listener);
+    }
+}
@@ -0,0 +1,44 @@
+package com.earlystart.kirichenkovthreatrix.service.user;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Base64;
+
+/**
+ * Opaque connection cursor: the driver paging state of a page plus the number of rows of that
+ * page already handed out. Cursors at a page boundary carry the next paging state and skip nothing,
+ * so continuing from {@code endCursor} costs one page read regardless of how deep the client is.
+ * <p>
+ * The Cassandra DAO issues the driver's safe paging state and checks it against the query before
+ * use, so a tampered cursor or one replayed against another query fails with
+ * {@link InvalidCursorException}.
+ */
+record PageCursor(ByteBuffer pagingState, int skip) {
+    static final PageCursor FIRST = new PageCursor(null, 0);
+    // Largest page a connection hands out. A cursor never skips more rows than one page holds.
+    static final int MAX_PAGE_SIZE = 1000;
+
+    static PageCursor decode(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return FIRST;
+        }
+        try {
+            var buffer = ByteBuffer.wrap(Base64.getUrlDecoder().decode(cursor));
+            int skip = buffer.getInt();
+            if (skip < 0 || skip > MAX_PAGE_SIZE) {
+                throw new InvalidCursorException();
+            }
+            return new PageCursor(buffer.hasRemaining() ? buffer.slice() : null, skip);
+        } catch (IllegalArgumentException | BufferUnderflowException e) {
+            throw new InvalidCursorException();
+        }
+    }
+
+    String encode() {
+        var state = pagingState == null ? ByteBuffer.allocate(0) : pagingState.duplicate();
+        var buffer = ByteBuffer.allocate(Integer.BYTES + state.remaining())
+                .putInt(skip)
+                .put(state);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+    }
+}
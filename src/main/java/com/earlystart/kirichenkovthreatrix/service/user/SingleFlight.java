@@ -0,0 +1,113 @@
+package com.earlystart.kirichenkovthreatrix.service.user;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Lets concurrent identical reads share one database call. The first caller for a key runs the read,
+ * and callers arriving while it is in flight wait for its result instead of issuing their own. Nothing
+ * is kept once the read completes, so a result is never older than the read that produced it.
+ * Results are handed to every waiting caller and must not be modified.
+ */
+public class SingleFlight<K, V> {
+    public static final String METRIC = "users.reads";
+
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder executed = new LongAdder();
+    private final LongAdder shared = new LongAdder();
+
+    public V get(K key, Supplier<V> read) {
+        var pending = new CompletableFuture<V>();
+        var existing = inFlight.putIfAbsent(key, pending);
+        if (existing != null) {
+            shared.increment();
+            return join(existing);
+        }
+        executed.increment();
+        try {
+            var value = read.get();
+            pending.complete(value);
+            return value;
+        } catch (Throwable e) {
+            // Errors too, or the callers sharing this read would wait forever.
+            pending.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, pending);
+        }
+    }
+
+    /**
+     * Reads the keys that are not in flight yet with one call to {@code read}, then waits for the others.
+     * Keys missing from the map returned by {@code read} map to {@code null}.
+     */
+    public Map<K, V> getAll(Set<K> keys, Function<Set<K>, Map<K, V>> read) {
+        Map<K, CompletableFuture<V>> own = new HashMap<>();
+        Map<K, CompletableFuture<V>> others = new HashMap<>();
+        for (K key : keys) {
+            var pending = new CompletableFuture<V>();
+            var existing = inFlight.putIfAbsent(key, pending);
+            if (existing == null) {
+                own.put(key, pending);
+            } else {
+                others.put(key, existing);
+            }
+        }
+        shared.add(others.size());
+        Map<K, V> values = new HashMap<>();
+        if (!own.isEmpty()) {
+            executed.add(own.size());
+            try {
+                var loaded = read.apply(own.keySet());
+                own.forEach((key, pending) -> {
+                    var value = loaded.get(key);
+                    pending.complete(value);
+                    values.put(key, value);
+                });
+            } catch (Throwable e) {
+                own.values().forEach(pending -> pending.completeExceptionally(e));
+                throw e;
+            } finally {
+                own.forEach(inFlight::remove);
+            }
+        }
+        // Own keys are complete before waiting, so two callers waiting on each other's keys cannot deadlock.
+        others.forEach((key, pending) -> values.put(key, join(pending)));
+        return values;
+    }
+
+    public void bindTo(MeterRegistry registry, String query) {
+        FunctionCounter.builder(METRIC, executed, LongAdder::sum)
+                .description("User reads, by whether they ran or shared a concurrent identical read")
+                .tags("query", query, "result", "executed")
+                .register(registry);
+        FunctionCounter.builder(METRIC, shared, LongAdder::sum)
+                .description("User reads, by whether they ran or shared a concurrent identical read")
+                .tags("query", query, "result", "shared")
+                .register(registry);
+    }
+
+    private static <V> V join(CompletableFuture<V> pending) {
+        try {
+            return pending.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
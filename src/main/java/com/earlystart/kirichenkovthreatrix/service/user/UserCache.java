@@ -0,0 +1,117 @@
+package com.earlystart.kirichenkovthreatrix.service.user;
+
+import com.earlystart.kirichenkovthreatrix.dao.UserDao;
+import com.earlystart.kirichenkovthreatrix.model.User;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Read-through cache in front of {@link UserDao} lookups by email. Unknown emails are cached
+ * as well, for a shorter time. Mutations must call {@link #invalidate(String)}, which also
+ * notifies other instances through the {@link UserCacheInvalidationBus}.
+ */
+@Component
+public class UserCache implements MeterBinder {
+    private final UserDao userDao;
+    private final UserCacheInvalidationBus invalidationBus;
+    private final Cache<String, Optional<User>> cache;
+    // Caffeine runs one load per key for get(), but concurrent bulk loads of the same emails each read.
+    private final SingleFlight<String, BulkRead> bulkReads = new SingleFlight<>();
+    // Bumped before every eviction, so a bulk read that overlapped one does not cache what it read.
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public UserCache(UserDao userDao,
+                     UserCacheInvalidationBus invalidationBus,
+                     @Value("${threatrix.users.cache.max-size:100000}") long maxSize,
+                     @Value("${threatrix.users.cache.ttl:5m}") Duration ttl,
+                     @Value("${threatrix.users.cache.negative-ttl:30s}") Duration negativeTtl) {
+        this.userDao = userDao;
+        this.invalidationBus = invalidationBus;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new UserExpiry(ttl, negativeTtl))
+                .recordStats()
+                .build();
+        invalidationBus.subscribe(this::evict);
+    }
+
+    public User get(String email) {
+        return cache.get(email, userDao::findById).orElse(null);
+    }
+
+    public Map<String, User> getAll(Set<String> emails) {
+        Map<String, User> users = new HashMap<>();
+        var cached = cache.getAllPresent(emails);
+        cached.forEach((email, user) -> user.ifPresent(found -> users.put(email, found)));
+        var missing = new HashSet<>(emails);
+        missing.removeAll(cached.keySet());
+        if (missing.isEmpty()) {
+            return users;
+        }
+        bulkReads.getAll(missing, this::loadAll).forEach((email, read) -> {
+            read.user().ifPresent(found -> users.put(email, found));
+            // Runs under the key's lock, so an invalidation either bumped the generation first or evicts afterwards.
+            cache.asMap().compute(email, (key, current) ->
+                    current != null || invalidations.get() != read.generation() ? current : read.user());
+        });
+        return users;
+    }
+
+    public void invalidate(String email) {
+        evict(email);
+        invalidationBus.publish(email);
+    }
+
+    private void evict(String email) {
+        invalidations.incrementAndGet();
+        cache.invalidate(email);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "users");
+        bulkReads.bindTo(registry, "findAllById");
+    }
+
+    private Map<String, BulkRead> loadAll(Set<String> emails) {
+        long generation = invalidations.get();
+        Map<String, BulkRead> loaded = new HashMap<>();
+        emails.forEach(email -> loaded.put(email, new BulkRead(Optional.empty(), generation)));
+        userDao.findAllById(emails).forEach(user -> loaded.put(user.getEmail(), new BulkRead(Optional.of(user), generation)));
+        return loaded;
+    }
+
+    private record BulkRead(Optional<User> user, long generation) {
+    }
+
+    private record UserExpiry(Duration ttl, Duration negativeTtl) implements Expiry<String, Optional<User>> {
+        @Override
+        public long expireAfterCreate(String email, Optional<User> user, long currentTime) {
+            return (user.isPresent() ? ttl : negativeTtl).toNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(String email, Optional<User> user, long currentTime, long currentDuration) {
+            return expireAfterCreate(email, user, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String email, Optional<User> user, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
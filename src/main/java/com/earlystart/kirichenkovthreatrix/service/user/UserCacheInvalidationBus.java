@@ -0,0 +1,14 @@
+package com.earlystart.kirichenkovthreatrix.service.user;
+
+import java.util.function.Consumer;
+
+/**
+ * Carries user cache invalidations between service instances. The default implementation only
+ * reaches caches in the same JVM; replace the bean with one backed by a shared broker to keep
+ * several replicas coherent.
+ */
+public interface UserCacheInvalidationBus {
+    void publish(String email);
+
+    void subscribe(Consumer<String> listener);
+}
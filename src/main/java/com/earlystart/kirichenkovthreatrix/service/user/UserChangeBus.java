@@ -0,0 +1,16 @@
+package com.earlystart.kirichenkovthreatrix.service.user;
+
+import com.earlystart.kirichenkovthreatrix.model.UserChange;
+
+import java.util.function.Consumer;
+
+/**
+ * Carries user changes from the mutations to the {@code userChanged} subscriptions. The default
+ * implementation only reaches subscribers connected to the same JVM; replace the bean with one
+ * backed by a shared broker to deliver changes made on other replicas as well.
+ */
+public interface UserChangeBus {
+    void publish(UserChange change);
+
+    void subscribe(Consumer<UserChange> listener);
+}
@@ -0,0 +1,41 @@
+package com.earlystart.kirichenkovthreatrix.service.user;
+
+import com.earlystart.kirichenkovthreatrix.dao.DeletedUser;
+import com.earlystart.kirichenkovthreatrix.dao.SavedUser;
+import com.earlystart.kirichenkovthreatrix.model.UserChange;
+import com.earlystart.kirichenkovthreatrix.model.UserChangeType;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Invalidates the {@link UserCache} entry of a written user and publishes the change on the
+ * {@link UserChangeBus}. Every path that writes users goes through here, so cached reads and
+ * subscriptions cannot miss a write.
+ */
+@Component
+@RequiredArgsConstructor
+public class UserChangeNotifier {
+    private final UserCache userCache;
+    private final UserChangeBus userChangeBus;
+
+    // Subscribers of the organization a user moved out of see it leave.
+    public void saved(UserChangeType type, SavedUser saved) {
+        userCache.invalidate(saved.user().getEmail());
+        if (saved.movedOrganization()) {
+            userChangeBus.publish(UserChange.deleted(saved.user().getEmail(), saved.previousOrganization()));
+        }
+        userChangeBus.publish(UserChange.of(type, saved.user()));
+    }
+
+    public void deleted(String email, DeletedUser deleted) {
+        userCache.invalidate(email);
+        if (deleted.existed()) {
+            userChangeBus.publish(UserChange.deleted(email, deleted.organization()));
+        }
+    }
+
+    // A failed write may still have been applied, so the cached user is dropped all the same.
+    public void failed(String email) {
+        userCache.invalidate(email);
+    }
+}
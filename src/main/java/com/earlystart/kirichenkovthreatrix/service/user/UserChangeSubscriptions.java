@@ -0,0 +1,202 @@
+package com.earlystart.kirichenkovthreatrix.service.user;
+
+import com.earlystart.kirichenkovthreatrix.model.UserChange;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fans the changes on the {@link UserChangeBus} out to {@code userChanged} subscribers of the
+ * affected organization. Every subscriber has its own buffer of at most {@code buffer-size} changes,
+ * keyed by email: a change to a user whose previous change has not been delivered yet replaces it,
+ * so a slow subscriber receives the latest state rather than every step. A subscriber that still
+ * falls further behind is completed with an error and is expected to re-read and subscribe again.
+ * Publishing only touches these buffers; delivery happens on the {@code userChangeExecutor}.
+ */
+@Component
+public class UserChangeSubscriptions implements MeterBinder {
+    private final Map<String, Set<ChangeSubscription>> subscriptions = new ConcurrentHashMap<>();
+    private final AtomicLong overflows = new AtomicLong();
+    private final Executor executor;
+    private final int bufferSize;
+
+    public UserChangeSubscriptions(UserChangeBus changeBus,
+                                   @Qualifier("userChangeExecutor") Executor executor,
+                                   @Value("${threatrix.graphql.subscriptions.buffer-size:256}") int bufferSize) {
+        this.executor = executor;
+        this.bufferSize = bufferSize;
+        changeBus.subscribe(this::dispatch);
+    }
+
+    public Publisher<UserChange> subscribe(String organization) {
+        return subscriber -> {
+            var subscription = new ChangeSubscription(organization, subscriber);
+            subscriptions.computeIfAbsent(organization, key -> ConcurrentHashMap.newKeySet()).add(subscription);
+            subscriber.onSubscribe(subscription);
+        };
+    }
+
+    public int size() {
+        return subscriptions.values().stream().mapToInt(Set::size).sum();
+    }
+
+    @PreDestroy
+    public void close() {
+        subscriptions.values().forEach(set -> set.forEach(ChangeSubscription::complete));
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("graphql.subscriptions", this, UserChangeSubscriptions::size)
+                .description("Open userChanged subscriptions")
+                .register(registry);
+        FunctionCounter.builder("graphql.subscriptions.overflows", overflows, AtomicLong::get)
+                .description("Subscriptions closed because the subscriber fell too far behind")
+                .register(registry);
+    }
+
+    private void dispatch(UserChange change) {
+        if (change.getOrganization() == null) {
+            return;
+        }
+        var subscribers = subscriptions.get(change.getOrganization());
+        if (subscribers != null) {
+            subscribers.forEach(subscription -> subscription.offer(change));
+        }
+    }
+
+    private void remove(ChangeSubscription subscription) {
+        subscriptions.computeIfPresent(subscription.organization, (organization, set) -> {
+            set.remove(subscription);
+            return set.isEmpty() ? null : set;
+        });
+    }
+
+    /**
+     * Delivers buffered changes as the subscriber requests them. Delivery runs on the change executor,
+     * one drain task per subscription at a time, so publishers never wait for a subscriber and
+     * signals are emitted serially, as Reactive Streams requires.
+     */
+    private final class ChangeSubscription implements Subscription {
+        private final String organization;
+        private final Subscriber<? super UserChange> subscriber;
+        private final LinkedHashMap<String, UserChange> pending = new LinkedHashMap<>();
+        private long demand;
+        private boolean scheduled;
+        private boolean done;
+        private Throwable error;
+        private boolean completed;
+
+        private ChangeSubscription(String organization, Subscriber<? super UserChange> subscriber) {
+            this.organization = organization;
+            this.subscriber = subscriber;
+        }
+
+        void offer(UserChange change) {
+            synchronized (this) {
+                if (done || error != null || completed) {
+                    return;
+                }
+                if (!pending.containsKey(change.getEmail()) && pending.size() >= bufferSize) {
+                    pending.clear();
+                    error = new IllegalStateException("Subscriber fell more than " + bufferSize + " changes behind");
+                    overflows.incrementAndGet();
+                } else {
+                    pending.put(change.getEmail(), change);
+                }
+            }
+            schedule();
+        }
+
+        void complete() {
+            synchronized (this) {
+                completed = true;
+            }
+            schedule();
+        }
+
+        @Override
+        public void request(long n) {
+            synchronized (this) {
+                if (n <= 0) {
+                    pending.clear();
+                    error = new IllegalArgumentException("Requested " + n + " changes, must be positive");
+                } else {
+                    demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+                }
+            }
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            synchronized (this) {
+                done = true;
+                pending.clear();
+            }
+            remove(this);
+        }
+
+        private void schedule() {
+            synchronized (this) {
+                if (scheduled || done) {
+                    return;
+                }
+                scheduled = true;
+            }
+            executor.execute(this::drain);
+        }
+
+        private void drain() {
+            while (true) {
+                UserChange next = null;
+                Throwable failure = null;
+                synchronized (this) {
+                    if (done) {
+                        return;
+                    }
+                    if (error != null) {
+                        failure = error;
+                        done = true;
+                    } else if (demand > 0 && !pending.isEmpty()) {
+                        var iterator = pending.values().iterator();
+                        next = iterator.next();
+                        iterator.remove();
+                        demand--;
+                    } else if (completed && pending.isEmpty()) {
+                        done = true;
+                    } else {
+                        scheduled = false;
+                        return;
+                    }
+                }
+                if (next != null) {
+                    subscriber.onNext(next);
+                    continue;
+                }
+                remove(this);
+                if (failure != null) {
+                    subscriber.onError(failure);
+                } else {
+                    subscriber.onComplete();
+                }
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.earlystart.kirichenkovthreatrix.service.user;
+
+import com.earlystart.kirichenkovthreatrix.model.User;
+import org.dataloader.DataLoader;
+import org.dataloader.DataLoaderFactory;
+import org.dataloader.DataLoaderOptions;
+import org.dataloader.DataLoaderRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Creates the request-scoped data loaders used by the user resolvers. Lookups issued while
+ * one GraphQL operation executes are de-duplicated, resolved through the {@link UserCache}
+ * with a single {@code IN} read per batch for the misses, and cached until the operation completes.
+ */
+@Component
+public class UserDataLoaders {
+    public static final String USER_BY_EMAIL = "userByEmail";
+
+    private final UserCache userCache;
+    private final int maxBatchSize;
+
+    public UserDataLoaders(UserCache userCache,
+                           @Value("${threatrix.graphql.data-loader.max-batch-size:100}") int maxBatchSize) {
+        this.userCache = userCache;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    public DataLoaderRegistry newRegistry() {
+        var registry = new DataLoaderRegistry();
+        registry.register(USER_BY_EMAIL, newUserByEmailLoader());
+        return registry;
+    }
+
+    DataLoader<String, User> newUserByEmailLoader() {
+        var options = DataLoaderOptions.newOptions().setMaxBatchSize(maxBatchSize);
+        return DataLoaderFactory.newMappedDataLoader(this::loadUsersByEmail, options);
+    }
+
+    private CompletableFuture<Map<String, User>> loadUsersByEmail(Set<String> emails) {
+        return CompletableFuture.completedFuture(userCache.getAll(emails));
+    }
+}
@@ -0,0 +1,145 @@
+package com.earlystart.kirichenkovthreatrix.service.user;
+
+import com.earlystart.kirichenkovthreatrix.dao.UserDao;
+import com.earlystart.kirichenkovthreatrix.model.User;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streams every user, without the password, as newline-delimited JSON. Token sub-ranges are scanned in
+ * parallel and handed to the writing thread through a bounded queue, so a slow client slows the scans down
+ * instead of buffering the table in memory. At most {@code threatrix.export.max-concurrent} exports run at
+ * a time, sharing one scan pool.
+ */
+@Service
+public class UserExportService {
+    private static final long POLL_INTERVAL_MS = 100;
+
+    private final UserDao userDao;
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter writer;
+    private final int queueCapacity;
+    private final Semaphore exports;
+    private final ExecutorService executor;
+
+    public UserExportService(UserDao userDao,
+                             ObjectMapper objectMapper,
+                             @Value("${threatrix.export.parallelism:8}") int parallelism,
+                             @Value("${threatrix.export.queue-capacity:1000}") int queueCapacity,
+                             @Value("${threatrix.export.max-concurrent:2}") int maxConcurrent) {
+        this.userDao = userDao;
+        this.objectMapper = objectMapper;
+        this.writer = objectMapper.copy()
+                .addMixIn(User.class, ExportedUser.class)
+                .writerFor(User.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.queueCapacity = queueCapacity;
+        this.exports = new Semaphore(maxConcurrent);
+        this.executor = Executors.newFixedThreadPool(parallelism * maxConcurrent, new CustomizableThreadFactory("user-export-"));
+    }
+
+    /**
+     * Reserves a slot for one export, which is released once the export has been written. Empty when
+     * {@code threatrix.export.max-concurrent} exports are already running.
+     */
+    public Optional<Export> reserve() {
+        if (!exports.tryAcquire()) {
+            return Optional.empty();
+        }
+        return Optional.of(out -> {
+            try {
+                exportUsers(out);
+            } finally {
+                exports.release();
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    void exportUsers(OutputStream out) throws IOException {
+        var export = new Run();
+        try {
+            var scan = userDao.scanUsers(executor, export::put);
+            export.writeUsers(scan, out);
+            scan.join();
+        } catch (CompletionException e) {
+            throw new IOException("User export failed", e.getCause());
+        } finally {
+            export.cancelled = true;
+        }
+    }
+
+    @FunctionalInterface
+    public interface Export {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    @JsonIgnoreProperties("password")
+    private abstract static class ExportedUser {
+    }
+
+    private final class Run {
+        private final BlockingQueue<User> queue = new ArrayBlockingQueue<>(queueCapacity);
+        // Set once the writer stops, so scan threads waiting on a full queue give up instead of blocking forever.
+        private volatile boolean cancelled;
+
+        private void writeUsers(CompletableFuture<Void> scan, OutputStream out) throws IOException {
+            try (var generator = objectMapper.getFactory().createGenerator(out)) {
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                // Nothing is put once the scan is done, so an empty queue after that is the end of the export.
+                while (!scan.isDone() || !queue.isEmpty()) {
+                    var user = queue.poll(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                    if (user == null) {
+                        continue;
+                    }
+                    writer.writeValue(generator, user);
+                    generator.writeRaw('\n');
+                    if (queue.isEmpty()) {
+                        generator.flush();
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("User export interrupted");
+            }
+        }
+
+        private void put(User user) {
+            try {
+                while (!queue.offer(user, POLL_INTERVAL_MS, TimeUnit.MILLISECONDS)) {
+                    if (cancelled) {
+                        throw new CancellationException("User export cancelled");
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("User export cancelled");
+            }
+        }
+    }
+}
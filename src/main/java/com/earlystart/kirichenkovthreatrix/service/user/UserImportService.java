@@ -0,0 +1,348 @@
+package com.earlystart.kirichenkovthreatrix.service.user;
+
+import com.earlystart.kirichenkovthreatrix.dao.SavedUser;
+import com.earlystart.kirichenkovthreatrix.dao.UserDao;
+import com.earlystart.kirichenkovthreatrix.model.User;
+import com.earlystart.kirichenkovthreatrix.model.UserChangeType;
+import com.earlystart.kirichenkovthreatrix.service.validator.Validator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Loads users from a local file, either newline-delimited JSON or CSV with a header row naming
+ * the {@link User} properties ({@code .csv} extension). The file is memory-mapped chunk by chunk
+ * and every row is validated and written with at most {@code max-concurrency} inserts in flight.
+ * <p>
+ * Imported users go through the {@link UserChangeNotifier} like any other write. Rows that cannot
+ * be parsed, fail validation or fail to be written are appended to {@code <file>.rejects} as
+ * {@code line<TAB>reason<TAB>row}. After every chunk has been written, the offset reached and the
+ * length of the rejects file are stored in {@code <file>.checkpoint}; a later run on the same file
+ * truncates the rejects to that length and resumes from there, so an interrupted import repeats at
+ * most one chunk of upserts and no rejects. Quoted CSV fields cannot span lines.
+ */
+@Slf4j
+@Service
+public class UserImportService {
+    private static final List<String> CSV_PROPERTIES =
+            List.of("email", "firstName", "lastName", "password", "organization", "permissions");
+
+    private final UserDao userDao;
+    private final Validator<User> validator;
+    private final UserChangeNotifier userChangeNotifier;
+    private final ObjectReader userReader;
+    private final int chunkSize;
+    private final int maxConcurrency;
+
+    public UserImportService(UserDao userDao,
+                             Validator<User> validator,
+                             UserChangeNotifier userChangeNotifier,
+                             ObjectMapper objectMapper,
+                             @Value("${threatrix.import.chunk-size:64MB}") DataSize chunkSize,
+                             @Value("${threatrix.import.max-concurrency:256}") int maxConcurrency) {
+        this.userDao = userDao;
+        this.validator = validator;
+        this.userChangeNotifier = userChangeNotifier;
+        this.userReader = objectMapper.readerFor(User.class);
+        this.chunkSize = Math.toIntExact(chunkSize.toBytes());
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    public record ImportResult(long imported, long rejected, Duration elapsed) {
+        public long usersPerSecond() {
+            return elapsed.isZero() ? imported : imported * 1_000_000_000L / elapsed.toNanos();
+        }
+    }
+
+    public ImportResult importUsers(Path file) throws IOException {
+        long start = System.nanoTime();
+        var checkpointFile = file.resolveSibling(file.getFileName() + ".checkpoint");
+        var rejectsFile = file.resolveSibling(file.getFileName() + ".rejects");
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            var checkpoint = Checkpoint.read(checkpointFile, size);
+            // Rejects appended after the checkpoint belong to the chunk that is imported again.
+            try (var rejectsChannel = FileChannel.open(rejectsFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                rejectsChannel.truncate(checkpoint.rejects);
+            }
+            try (var rejects = Files.newBufferedWriter(rejectsFile, StandardCharsets.UTF_8, StandardOpenOption.APPEND)) {
+                if (checkpoint.offset > 0) {
+                    log.info("Resuming import of {} at byte {} of {}, line {}", file, checkpoint.offset, size, checkpoint.line);
+                }
+                var csv = file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".csv");
+                var run = new Run(csv ? csvParser(file, channel) : userReader::readValue, csv, checkpoint.line, rejects);
+                long importedBefore = checkpoint.imported;
+                long rejectedBefore = checkpoint.rejected;
+                while (checkpoint.offset < size) {
+                    var chunk = channel.map(FileChannel.MapMode.READ_ONLY, checkpoint.offset,
+                            Math.min(chunkSize, size - checkpoint.offset));
+                    int consumed = forEachLine(chunk, checkpoint.offset + chunk.limit() == size, run::importRow);
+                    if (consumed == 0) {
+                        throw new IOException("Line " + (run.line + 1) + " of " + file + " is longer than the chunk size");
+                    }
+                    run.awaitWrites();
+                    rejects.flush();
+                    checkpoint.offset += consumed;
+                    checkpoint.line = run.line;
+                    checkpoint.imported = importedBefore + run.imported.get();
+                    checkpoint.rejected = rejectedBefore + run.rejected.get();
+                    checkpoint.rejects = Files.size(rejectsFile);
+                    checkpoint.write(checkpointFile);
+                    log.info("Imported {} of {} bytes of {}: {} users, {} rejected, {} users/s", checkpoint.offset, size, file,
+                            checkpoint.imported, checkpoint.rejected, run.result(start).usersPerSecond());
+                }
+                return run.result(start);
+            }
+        }
+    }
+
+    // Passes every line without its line break to rows and returns the number of bytes up to the end of
+    // the last complete line. The rest is read again with the next chunk.
+    private static int forEachLine(MappedByteBuffer chunk, boolean last, Consumer<byte[]> rows) {
+        int lineStart = 0;
+        for (int i = 0; i < chunk.limit(); i++) {
+            if (chunk.get(i) == '\n') {
+                rows.accept(bytes(chunk, lineStart, i));
+                lineStart = i + 1;
+            }
+        }
+        if (last && lineStart < chunk.limit()) {
+            rows.accept(bytes(chunk, lineStart, chunk.limit()));
+            lineStart = chunk.limit();
+        }
+        return lineStart;
+    }
+
+    private static byte[] bytes(MappedByteBuffer chunk, int from, int to) {
+        if (to > from && chunk.get(to - 1) == '\r') {
+            to--;
+        }
+        var bytes = new byte[to - from];
+        chunk.get(from, bytes);
+        return bytes;
+    }
+
+    private RowParser csvParser(Path file, FileChannel channel) throws IOException {
+        var chunk = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(chunkSize, channel.size()));
+        int end = 0;
+        while (end < chunk.limit() && chunk.get(end) != '\n') {
+            end++;
+        }
+        var header = new String(bytes(chunk, 0, end), StandardCharsets.UTF_8);
+        if (header.isBlank()) {
+            throw new IOException("CSV file " + file + " has no header row");
+        }
+        List<String> columns = new ArrayList<>();
+        for (var column : splitCsv(header)) {
+            columns.add(CSV_PROPERTIES.stream().filter(column.trim()::equalsIgnoreCase).findFirst()
+                    .orElseThrow(() -> new IOException("Unknown CSV column " + column)));
+        }
+        return row -> csvUser(columns, splitCsv(new String(row, StandardCharsets.UTF_8)));
+    }
+
+    private static User csvUser(List<String> columns, List<String> fields) throws IOException {
+        if (fields.size() != columns.size()) {
+            throw new IOException("Expected " + columns.size() + " fields but found " + fields.size());
+        }
+        var user = new User();
+        for (int i = 0; i < fields.size(); i++) {
+            var value = fields.get(i).isEmpty() ? null : fields.get(i);
+            switch (columns.get(i)) {
+                case "email" -> user.setEmail(value);
+                case "firstName" -> user.setFirstName(value);
+                case "lastName" -> user.setLastName(value);
+                case "password" -> user.setPassword(value);
+                case "organization" -> user.setOrganization(value);
+                default -> user.setPermissions(value);
+            }
+        }
+        return user;
+    }
+
+    static List<String> splitCsv(String line) throws IOException {
+        List<String> fields = new ArrayList<>();
+        var field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IOException("Unterminated quoted field");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private interface RowParser {
+        User parse(byte[] row) throws IOException;
+    }
+
+    // State of one importUsers call. Rows are parsed on the calling thread, writes complete on driver threads.
+    private final class Run {
+        private final RowParser parser;
+        private final boolean skipHeader;
+        private final BufferedWriter rejects;
+        private final Semaphore permits = new Semaphore(maxConcurrency);
+        private final AtomicLong imported = new AtomicLong();
+        private final AtomicLong rejected = new AtomicLong();
+        private final List<CompletableFuture<?>> writes = new ArrayList<>();
+        private long line;
+
+        private Run(RowParser parser, boolean skipHeader, long line, BufferedWriter rejects) {
+            this.parser = parser;
+            this.skipHeader = skipHeader;
+            this.line = line;
+            this.rejects = rejects;
+        }
+
+        private void importRow(byte[] row) {
+            long rowLine = ++line;
+            if (row.length == 0 || (skipHeader && rowLine == 1)) {
+                return;
+            }
+            User user;
+            try {
+                user = parser.parse(row);
+                validator.validate(user);
+            } catch (IOException | RuntimeException e) {
+                reject(rowLine, e.getMessage(), row);
+                return;
+            }
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new UncheckedIOException(new InterruptedIOException("User import interrupted"));
+            }
+            CompletableFuture<SavedUser> written;
+            try {
+                written = userDao.saveUserAsync(user);
+            } catch (RuntimeException e) {
+                written = CompletableFuture.failedFuture(e);
+            }
+            writes.add(written.whenComplete((saved, error) -> {
+                permits.release();
+                if (error == null) {
+                    imported.incrementAndGet();
+                    userChangeNotifier.saved(UserChangeType.UPDATED, saved);
+                } else {
+                    userChangeNotifier.failed(user.getEmail());
+                    var cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                    reject(rowLine, cause.getMessage(), row);
+                }
+            }));
+        }
+
+        private void awaitWrites() {
+            CompletableFuture.allOf(writes.toArray(CompletableFuture[]::new)).exceptionally(error -> null).join();
+            writes.clear();
+        }
+
+        private void reject(long rowLine, String reason, byte[] row) {
+            rejected.incrementAndGet();
+            synchronized (rejects) {
+                try {
+                    rejects.write(rowLine + "\t" + String.valueOf(reason).replace('\t', ' ').replace('\n', ' ') + "\t");
+                    rejects.write(new String(row, StandardCharsets.UTF_8));
+                    rejects.newLine();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+
+        private ImportResult result(long start) {
+            return new ImportResult(imported.get(), rejected.get(), Duration.ofNanos(System.nanoTime() - start));
+        }
+    }
+
+    private static final class Checkpoint {
+        private final long size;
+        private long offset;
+        private long line;
+        private long imported;
+        private long rejected;
+        private long rejects;
+
+        private Checkpoint(long size) {
+            this.size = size;
+        }
+
+        static Checkpoint read(Path path, long size) throws IOException {
+            var checkpoint = new Checkpoint(size);
+            if (!Files.exists(path)) {
+                return checkpoint;
+            }
+            var properties = new Properties();
+            try (var in = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                properties.load(in);
+            }
+            if (Long.parseLong(properties.getProperty("size")) != size) {
+                throw new IOException("The file has changed since " + path + " was written; delete it to import from the start");
+            }
+            checkpoint.offset = Long.parseLong(properties.getProperty("offset"));
+            checkpoint.line = Long.parseLong(properties.getProperty("line"));
+            checkpoint.imported = Long.parseLong(properties.getProperty("imported"));
+            checkpoint.rejected = Long.parseLong(properties.getProperty("rejected"));
+            checkpoint.rejects = Long.parseLong(properties.getProperty("rejects"));
+            return checkpoint;
+        }
+
+        void write(Path path) throws IOException {
+            var properties = new Properties();
+            properties.setProperty("size", Long.toString(size));
+            properties.setProperty("offset", Long.toString(offset));
+            properties.setProperty("line", Long.toString(line));
+            properties.setProperty("imported", Long.toString(imported));
+            properties.setProperty("rejected", Long.toString(rejected));
+            properties.setProperty("rejects", Long.toString(rejects));
+            var temporary = path.resolveSibling(path.getFileName() + ".tmp");
+            try (var out = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+                properties.store(out, null);
+            }
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.earlystart.kirichenkovthreatrix.service.user;
+
+import com.earlystart.kirichenkovthreatrix.dao.UserColumns;
+import graphql.schema.DataFetchingFieldSelectionSet;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Maps the {@code User} fields selected by a list or connection query to the columns to read,
+ * so that unselected columns, the password in particular, are not fetched.
+ */
+public final class UserSelection {
+    private static final Map<String, String> COLUMNS_BY_FIELD = Map.of(
+            "email", "email",
+            "firstName", "firstname",
+            "lastName", "lastname",
+            "password", "password",
+            "organization", "organization",
+            "permissions", "permissions");
+
+    private UserSelection() {
+    }
+
+    public static Set<String> columns(DataFetchingFieldSelectionSet selectionSet) {
+        // Users are either the items of a list or the nodes of a connection.
+        return UserColumns.of(selectionSet.getFields("*", "edges/node/*").stream()
+                .map(field -> COLUMNS_BY_FIELD.get(field.getName()))
+                .filter(Objects::nonNull)
+                .toList());
+    }
+}
@@ -1,20 +1,66 @@
 package com.earlystart.kirichenkovthreatrix.service.user;
 
 
+import com.earlystart.kirichenkovthreatrix.dao.UserColumns;
+import com.earlystart.kirichenkovthreatrix.model.OrganizationStats;
 import com.earlystart.kirichenkovthreatrix.model.User;
+import com.earlystart.kirichenkovthreatrix.model.UserChange;
+import com.earlystart.kirichenkovthreatrix.model.UserUpdate;
+import com.earlystart.kirichenkovthreatrix.model.UserWriteResult;
+import io.leangen.graphql.execution.ResolutionEnvironment;
+import io.leangen.graphql.execution.relay.Page;
+import org.reactivestreams.Publisher;
 
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 public interface UserService {
     User createUser(User user);
 
-    List<User> getAllUsers(String startAfterEmail, int limit);
+    CompletableFuture<List<UserWriteResult>> createUsers(List<User> users);
+
+    default List<User> getAllUsers(String startAfterEmail, int limit) {
+        return getAllUsers(startAfterEmail, limit, UserColumns.ALL);
+    }
+
+    List<User> getAllUsers(String startAfterEmail, int limit, Set<String> columns);
+
+    default Page<User> getAllUsersConnection(int first, String after) {
+        return getAllUsersConnection(first, after, UserColumns.ALL);
+    }
+
+    Page<User> getAllUsersConnection(int first, String after, Set<String> columns);
 
     User getUserByEmail(String email);
 
-    List<User> getUsersByOrganization(String organization, String startAfterEmail, int limit);
+    CompletableFuture<User> getUserByEmail(String email, ResolutionEnvironment env);
+
+    default List<User> getUsersByOrganization(String organization, String startAfterEmail, int limit) {
+        return getUsersByOrganization(organization, startAfterEmail, limit, UserColumns.ALL);
+    }
+
+    List<User> getUsersByOrganization(String organization, String startAfterEmail, int limit, Set<String> columns);
+
+    default Page<User> getUsersByOrganizationConnection(String organization, int first, String after) {
+        return getUsersByOrganizationConnection(organization, first, after, UserColumns.ALL);
+    }
+
+    Page<User> getUsersByOrganizationConnection(String organization, int first, String after, Set<String> columns);
+
+    int organizationUserCount(String organization);
+
+    List<OrganizationStats> organizationStats(List<String> organizations);
 
     User createOrUpdateUser(User user);
 
+    CompletableFuture<List<UserWriteResult>> upsertUsers(List<User> users);
+
+    User updateUser(UserUpdate changes);
+
     void deleteUser(String email);
+
+    boolean deleteUserIfExists(String email);
+
+    Publisher<UserChange> userChanged(String organization);
 }
@@ -1,27 +1,78 @@
 package com.earlystart.kirichenkovthreatrix.service.user;
 
+import com.earlystart.kirichenkovthreatrix.dao.DeletedUser;
+import com.earlystart.kirichenkovthreatrix.dao.SavedUser;
 import com.earlystart.kirichenkovthreatrix.dao.UserDao;
+import com.earlystart.kirichenkovthreatrix.model.OrganizationStats;
 import com.earlystart.kirichenkovthreatrix.model.User;
+import com.earlystart.kirichenkovthreatrix.model.UserChange;
+import com.earlystart.kirichenkovthreatrix.model.UserChangeType;
+import com.earlystart.kirichenkovthreatrix.model.UserUpdate;
+import com.earlystart.kirichenkovthreatrix.model.UserWriteResult;
 import com.earlystart.kirichenkovthreatrix.service.validator.Validator;
+import graphql.relay.DefaultConnectionCursor;
+import graphql.relay.DefaultEdge;
+import graphql.relay.DefaultPageInfo;
+import graphql.relay.Edge;
 import io.leangen.graphql.annotations.GraphQLArgument;
+import io.leangen.graphql.annotations.GraphQLEnvironment;
 import io.leangen.graphql.annotations.GraphQLMutation;
 import io.leangen.graphql.annotations.GraphQLQuery;
+import io.leangen.graphql.annotations.GraphQLSubscription;
+import io.leangen.graphql.execution.ResolutionEnvironment;
+import io.leangen.graphql.execution.relay.Page;
+import io.leangen.graphql.execution.relay.generic.GenericPage;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
 import lombok.RequiredArgsConstructor;
+import org.dataloader.DataLoader;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.data.cassandra.core.query.CassandraPageRequest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.validation.annotation.Validated;
 
 import javax.validation.Valid;
+import javax.validation.ValidationException;
 import javax.validation.constraints.NotNull;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 
 @Service
 @RequiredArgsConstructor
 @Validated
-public class UserServiceImpl implements UserService {
+public class UserServiceImpl implements UserService, MeterBinder {
     private static final String DEFAULT_CURSOR_MARK = "-1";
+    // Concurrent identical list reads share one query; nothing is cached beyond the query itself.
+    private final SingleFlight<ListKey, List<User>> allUsers = new SingleFlight<>();
+    private final SingleFlight<ListKey, List<User>> organizationUsers = new SingleFlight<>();
+    private final SingleFlight<PageKey, Slice<User>> allUserPages = new SingleFlight<>();
+    private final SingleFlight<PageKey, Slice<User>> organizationUserPages = new SingleFlight<>();
     private final UserDao userDao;
     private final Validator<User> validator;
+    private final UserCache userCache;
+    private final UserChangeNotifier userChangeNotifier;
+    private final UserChangeSubscriptions userChangeSubscriptions;
+
+    @Value("${threatrix.users.bulk.max-size:10000}")
+    private int bulkMaxSize;
+
+    @Value("${threatrix.users.bulk.max-concurrency:128}")
+    private int bulkMaxConcurrency;
+
+    @Value("${threatrix.users.stats.max-organizations:1000}")
+    private int statsMaxOrganizations;
 
     @Override
     @GraphQLMutation(name = "createUser", description = "Creates a new user.")
@@ -29,36 +80,119 @@ public class UserServiceImpl implements UserService {
             name = "user",
             description = "User to be created") User user) {
         validator.validate(user);
-        return userDao.save(user);
+        var saved = userDao.saveUser(user);
+        userChangeNotifier.saved(UserChangeType.CREATED, saved);
+        return saved.user();
     }
 
     @Override
-    @GraphQLQuery(name = "getAllUsers", description = "Find all users with optional pagination.")
+    @GraphQLMutation(name = "createUsers", description = "Creates users in bulk, reporting the outcome per user.")
+    public CompletableFuture<List<UserWriteResult>> createUsers(@GraphQLArgument(
+            name = "users",
+            description = "Users to be created") List<User> users) {
+        return writeAll(users, userDao::saveUserAsync, UserChangeType.CREATED);
+    }
+
+    @GraphQLQuery(name = "getAllUsers", description = "Find all users with optional pagination.",
+            deprecationReason = "Use getAllUsersConnection")
     public List<User> getAllUsers(
             @GraphQLArgument(name = "startAfterEmail", description = "Email after which to start pagination") String startAfterEmail,
-            @GraphQLArgument(name = "limit", description = "Number of users to return") int limit) {
-        return userDao.findAllWithPaging(Objects.requireNonNullElse(startAfterEmail, ""), limit);
+            @GraphQLArgument(name = "limit", description = "Number of users to return") int limit,
+            @GraphQLEnvironment ResolutionEnvironment env) {
+        return getAllUsers(startAfterEmail, limit, UserSelection.columns(env.dataFetchingEnvironment.getSelectionSet()));
+    }
+
+    @Override
+    public List<User> getAllUsers(String startAfterEmail, int limit, Set<String> columns) {
+        var startAfter = Objects.requireNonNullElse(startAfterEmail, "");
+        return allUsers.get(new ListKey(null, startAfter, limit, columns),
+                () -> userDao.findAllWithPaging(startAfter, limit, columns));
+    }
+
+    @GraphQLQuery(name = "getAllUsersConnection", description = "Find all users page by page.")
+    public Page<User> getAllUsersConnection(
+            @GraphQLArgument(name = "first", description = "Number of users to return", defaultValue = "20") int first,
+            @GraphQLArgument(name = "after", description = "endCursor of the previous page") String after,
+            @GraphQLEnvironment ResolutionEnvironment env) {
+        return getAllUsersConnection(first, after, UserSelection.columns(env.dataFetchingEnvironment.getSelectionSet()));
+    }
+
+    @Override
+    public Page<User> getAllUsersConnection(int first, String after, Set<String> columns) {
+        return page(first, after, pageable -> allUserPages.get(new PageKey(null, pageable, columns),
+                () -> userDao.findAll(pageable, columns)));
+    }
+
+    @Override
+    public User getUserByEmail(@NotNull String email) {
+        return userCache.get(email);
     }
 
     @Override
     @GraphQLQuery(name = "getUserByEmail", description = "Find a user by email.")
-    public User getUserByEmail(@NotNull @GraphQLArgument(
+    public CompletableFuture<User> getUserByEmail(@NotNull @GraphQLArgument(
             name = "email",
-            description = "Email of the user") String email) {
-        return userDao.findById(email).orElse(null);
+            description = "Email of the user") String email,
+            @GraphQLEnvironment ResolutionEnvironment env) {
+        DataLoader<String, User> loader = env.dataFetchingEnvironment.getDataLoader(UserDataLoaders.USER_BY_EMAIL);
+        if (loader == null) {
+            return CompletableFuture.completedFuture(getUserByEmail(email));
+        }
+        return loader.load(email);
     }
 
-    @Override
-    @GraphQLQuery(name = "getUsersByOrganization", description = "Find users by organization with optional pagination.")
+    @GraphQLQuery(name = "getUsersByOrganization", description = "Find users by organization with optional pagination.",
+            deprecationReason = "Use getUsersByOrganizationConnection")
     public List<User> getUsersByOrganization(
             @NotNull @GraphQLArgument(name = "organization", description = "Organization of the user") String organization,
             @GraphQLArgument(name = "startAfterEmail", description = "Email after which to start pagination") String startAfterEmail,
-            @GraphQLArgument(name = "limit", description = "Number of users to return") int limit) {
+            @GraphQLArgument(name = "limit", description = "Number of users to return") int limit,
+            @GraphQLEnvironment ResolutionEnvironment env) {
+        return getUsersByOrganization(organization, startAfterEmail, limit,
+                UserSelection.columns(env.dataFetchingEnvironment.getSelectionSet()));
+    }
 
-        return userDao.findByOrganizationWithPagination(
-                organization,
-                Objects.requireNonNullElse(startAfterEmail, ""),
-                limit);
+    @Override
+    public List<User> getUsersByOrganization(String organization, String startAfterEmail, int limit, Set<String> columns) {
+        var startAfter = Objects.requireNonNullElse(startAfterEmail, "");
+        return organizationUsers.get(new ListKey(organization, startAfter, limit, columns),
+                () -> userDao.findByOrganizationWithPagination(organization, startAfter, limit, columns));
+    }
+
+    @GraphQLQuery(name = "getUsersByOrganizationConnection", description = "Find users by organization page by page, ordered by email.")
+    public Page<User> getUsersByOrganizationConnection(
+            @NotNull @GraphQLArgument(name = "organization", description = "Organization of the user") String organization,
+            @GraphQLArgument(name = "first", description = "Number of users to return", defaultValue = "20") int first,
+            @GraphQLArgument(name = "after", description = "endCursor of the previous page") String after,
+            @GraphQLEnvironment ResolutionEnvironment env) {
+        return getUsersByOrganizationConnection(organization, first, after,
+                UserSelection.columns(env.dataFetchingEnvironment.getSelectionSet()));
+    }
+
+    @Override
+    public Page<User> getUsersByOrganizationConnection(String organization, int first, String after, Set<String> columns) {
+        return page(first, after, pageable -> organizationUserPages.get(new PageKey(organization, pageable, columns),
+                () -> userDao.findByOrganization(organization, pageable, columns)));
+    }
+
+    @Override
+    @GraphQLQuery(name = "organizationUserCount", description = "Number of users in an organization.")
+    public int organizationUserCount(
+            @NotNull @GraphQLArgument(name = "organization", description = "Organization of the users") String organization) {
+        return organizationStats(List.of(organization)).get(0).getUserCount();
+    }
+
+    @Override
+    @GraphQLQuery(name = "organizationStats", description = "Number of users in each of the given organizations.")
+    public List<OrganizationStats> organizationStats(
+            @NotNull @GraphQLArgument(name = "organizations", description = "Organizations to report on") List<@NotNull String> organizations) {
+        if (organizations.size() > statsMaxOrganizations) {
+            throw new ValidationException("Stats request exceeds " + statsMaxOrganizations + " organizations");
+        }
+        return userDao.countUsersByOrganizations(organizations).entrySet().stream()
+                // Counters start at zero on upgrade, so deletes can take them below zero until reconciled.
+                .map(count -> new OrganizationStats(count.getKey(), Math.toIntExact(Math.max(0, count.getValue()))))
+                .toList();
     }
 
     @Override
@@ -67,24 +201,174 @@ public class UserServiceImpl implements UserService {
             name = "user",
             description = "User to be created or updated") User user) {
         validator.validate(user);
-        return userDao.findById(user.getEmail())
-                .map(existingUser -> {
-                    existingUser.setFirstName(user.getFirstName());
-                    existingUser.setLastName(user.getLastName());
-                    existingUser.setEmail(user.getEmail());
-                    existingUser.setPassword(user.getPassword());
-                    existingUser.setOrganization(user.getOrganization());
-                    existingUser.setPermissions(user.getPermissions());
-                    return userDao.save(existingUser);
-                })
-                .orElseGet(() -> userDao.save(user));
+        var saved = userDao.saveUser(user);
+        userChangeNotifier.saved(UserChangeType.UPDATED, saved);
+        return saved.user();
+    }
+
+    @Override
+    @GraphQLMutation(name = "upsertUsers", description = "Creates or updates users in bulk, reporting the outcome per user.")
+    public CompletableFuture<List<UserWriteResult>> upsertUsers(@GraphQLArgument(
+            name = "users",
+            description = "Users to be created or updated") List<User> users) {
+        return writeAll(users, userDao::saveUserAsync, UserChangeType.UPDATED);
     }
 
+    // The current user comes from the cache, so a cached user is updated without reading it first.
+    @Override
+    @GraphQLMutation(name = "updateUser", description = "Updates the given fields of an existing user, keeping the others.")
+    public User updateUser(@Valid @GraphQLArgument(
+            name = "user",
+            description = "Email of the user and the fields to be updated") UserUpdate changes) {
+        var current = userCache.get(changes.getEmail());
+        if (current == null) {
+            throw new ValidationException("User not found: " + changes.getEmail());
+        }
+        validator.validate(changes.applyTo(current));
+        var saved = userDao.updateUser(changes, current);
+        userChangeNotifier.saved(UserChangeType.UPDATED, saved);
+        return saved.user();
+    }
+
+    // Deletes are unconditional; the cached user supplies the organization whose index row and count go with it.
     @Override
     @GraphQLMutation(name = "deleteUser", description = "Deletes a user by Email.")
     public void deleteUser(@GraphQLArgument(name = "email", description = "Email of the user to be deleted") String email) {
-        if (userDao.existsByEmail(email)) {
-            userDao.deleteByEmail(email);
+        var current = userCache.get(email);
+        userDao.deleteUser(email, current == null ? null : current.getOrganization());
+        userChangeNotifier.deleted(email, current == null
+                ? DeletedUser.MISSING
+                : new DeletedUser(true, current.getOrganization()));
+    }
+
+    @Override
+    @GraphQLMutation(name = "deleteUserIfExists", description = "Deletes a user by Email, returning whether it existed.")
+    public boolean deleteUserIfExists(@GraphQLArgument(name = "email", description = "Email of the user to be deleted") String email) {
+        var current = userCache.get(email);
+        var deleted = userDao.deleteUserIfExists(email, current == null ? null : current.getOrganization());
+        userChangeNotifier.deleted(email, deleted);
+        return deleted.existed();
+    }
+
+    @Override
+    @GraphQLSubscription(name = "userChanged", description = "Streams the users created, updated or deleted in an organization.")
+    public Publisher<UserChange> userChanged(@NotNull @GraphQLArgument(
+            name = "organization",
+            description = "Organization of the users") String organization) {
+        return userChangeSubscriptions.subscribe(organization);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        allUsers.bindTo(registry, "getAllUsers");
+        organizationUsers.bindTo(registry, "getUsersByOrganization");
+        allUserPages.bindTo(registry, "getAllUsersConnection");
+        organizationUserPages.bindTo(registry, "getUsersByOrganizationConnection");
+    }
+
+    // Invalid users are reported up front; the valid ones are written by at most bulkMaxConcurrency workers,
+    // each taking the next user once its previous write has completed. Results are in request order.
+    private CompletableFuture<List<UserWriteResult>> writeAll(List<User> users,
+                                                             Function<User, CompletableFuture<SavedUser>> write,
+                                                             UserChangeType changeType) {
+        if (users.size() > bulkMaxSize) {
+            throw new ValidationException("Bulk request exceeds " + bulkMaxSize + " users");
+        }
+        var results = new UserWriteResult[users.size()];
+        List<Integer> pending = new ArrayList<>(users.size());
+        for (int i = 0; i < users.size(); i++) {
+            var user = users.get(i);
+            if (user == null) {
+                results[i] = UserWriteResult.failure(null, "User cannot be null");
+                continue;
+            }
+            try {
+                validator.validate(user);
+                pending.add(i);
+            } catch (RuntimeException e) {
+                results[i] = UserWriteResult.failure(user.getEmail(), e.getMessage());
+            }
+        }
+        var next = new AtomicInteger();
+        var workers = new CompletableFuture<?>[Math.min(bulkMaxConcurrency, pending.size())];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = writeNext(users, pending, write, changeType, results, next);
         }
+        return CompletableFuture.allOf(workers).thenApply(done -> Arrays.asList(results));
+    }
+
+    private CompletableFuture<Void> writeNext(List<User> users, List<Integer> pending,
+                                              Function<User, CompletableFuture<SavedUser>> write,
+                                              UserChangeType changeType, UserWriteResult[] results, AtomicInteger next) {
+        int position = next.getAndIncrement();
+        if (position >= pending.size()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        int index = pending.get(position);
+        var email = users.get(index).getEmail();
+        CompletableFuture<SavedUser> written;
+        try {
+            written = write.apply(users.get(index));
+        } catch (RuntimeException e) {
+            written = CompletableFuture.failedFuture(e);
+        }
+        return written
+                .handle((saved, error) -> {
+                    if (error == null) {
+                        userChangeNotifier.saved(changeType, saved);
+                        return UserWriteResult.success(email);
+                    }
+                    userChangeNotifier.failed(email);
+                    return UserWriteResult.failure(email, unwrap(error).getMessage());
+                })
+                .thenCompose(result -> {
+                    results[index] = result;
+                    return writeNext(users, pending, write, changeType, results, next);
+                });
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    private static Page<User> page(int first, String after, Function<Pageable, Slice<User>> query) {
+        if (first <= 0 || first > PageCursor.MAX_PAGE_SIZE) {
+            throw new ValidationException("first must be between 1 and " + PageCursor.MAX_PAGE_SIZE);
+        }
+        var cursor = PageCursor.decode(after);
+        var request = PageRequest.of(0, cursor.skip() + first);
+        Slice<User> slice;
+        try {
+            slice = query.apply(cursor.pagingState() == null
+                    ? CassandraPageRequest.first(request.getPageSize())
+                    : CassandraPageRequest.of(request, cursor.pagingState()));
+        } catch (InvalidDataAccessApiUsageException e) {
+            throw new InvalidCursorException();
+        }
+        var users = slice.getContent();
+
+        List<Edge<User>> edges = new ArrayList<>();
+        for (int i = cursor.skip(); i < users.size(); i++) {
+            var edgeCursor = new PageCursor(cursor.pagingState(), i + 1);
+            edges.add(new DefaultEdge<>(users.get(i), new DefaultConnectionCursor(edgeCursor.encode())));
+        }
+        if (slice.hasNext() && !edges.isEmpty()) {
+            var nextPagingState = ((CassandraPageRequest) slice.nextPageable()).getPagingState();
+            var last = edges.remove(edges.size() - 1);
+            edges.add(new DefaultEdge<>(last.getNode(),
+                    new DefaultConnectionCursor(new PageCursor(nextPagingState, 0).encode())));
+        }
+        var pageInfo = new DefaultPageInfo(
+                edges.isEmpty() ? null : edges.get(0).getCursor(),
+                edges.isEmpty() ? null : edges.get(edges.size() - 1).getCursor(),
+                cursor != PageCursor.FIRST,
+                slice.hasNext());
+        return new GenericPage<>(edges, pageInfo);
+    }
+
+    private record ListKey(String organization, String startAfterEmail, int limit, Set<String> columns) {
+    }
+
+    private record PageKey(String organization, Pageable pageable, Set<String> columns) {
     }
 }
@@ -0,0 +1,28 @@
+package com.earlystart.kirichenkovthreatrix.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CassandraMigrationRunnerTest {
+
+    @Test
+    void testRepository_WithBackfillPending_ShouldHoldBackIndexDrop() {
+        var repository = CassandraMigrationRunner.repository(CassandraMigrationRunner.AFTER_BACKFILL_VERSION - 1);
+
+        assertEquals(CassandraMigrationRunner.AFTER_BACKFILL_VERSION - 1, repository.getLatestVersion());
+    }
+
+    @Test
+    void testRepository_AfterBackfill_ShouldIncludeIndexDrop() throws Exception {
+        var repository = CassandraMigrationRunner.repository(Integer.MAX_VALUE);
+        var script = new ClassPathResource("cassandra/migration/004__drop_organization_index.cql")
+                .getContentAsString(StandardCharsets.UTF_8);
+
+        assertEquals(CassandraMigrationRunner.AFTER_BACKFILL_VERSION, repository.getLatestVersion());
+        assertTrue(script.contains("DROP INDEX IF EXISTS organization_idx"));
+    }
+}
@@ -0,0 +1,31 @@
+package com.earlystart.kirichenkovthreatrix.config;
+
+import com.earlystart.kirichenkovthreatrix.dao.InMemoryUserDao;
+import com.earlystart.kirichenkovthreatrix.dao.UserDao;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// The storage property without the memory profile, which used to leave both DAOs registered.
+@SpringBootTest(properties = {
+        "threatrix.storage.type=memory",
+        "spring.autoconfigure.exclude=org.springframework.boot.autoconfigure.cassandra.CassandraAutoConfiguration"
+})
+class CassandraRepositoryConfigTest {
+
+    @Autowired
+    private ApplicationContext context;
+
+    @Test
+    void testMemoryStorageProperty_ShouldRegisterOnlyInMemoryUserDao() {
+        var userDaos = context.getBeansOfType(UserDao.class);
+
+        assertEquals(1, userDaos.size());
+        assertEquals(InMemoryUserDao.class, AopUtils.getTargetClass(userDaos.values().iterator().next()));
+        assertTrue(context.getBeansOfType(CassandraRepositoryConfig.class).isEmpty());
+    }
+}
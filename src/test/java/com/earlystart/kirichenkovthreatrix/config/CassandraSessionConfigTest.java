@@ -0,0 +1,32 @@
+package com.earlystart.kirichenkovthreatrix.config;
+
+import com.datastax.oss.driver.api.core.config.DriverConfigLoader;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static com.datastax.oss.driver.api.core.config.DefaultDriverOption.REQUEST_TIMEOUT;
+import static com.datastax.oss.driver.api.core.config.DefaultDriverOption.SPECULATIVE_EXECUTION_POLICY_CLASS;
+import static org.junit.jupiter.api.Assertions.*;
+
+class CassandraSessionConfigTest {
+
+    @Test
+    void testScanProfile_ShouldUseScanTimeoutWithoutSpeculativeExecution() {
+        var builder = DriverConfigLoader.programmaticBuilder();
+        new CassandraSessionConfig().scyllaDriverConfigCustomizer(1, 2, Duration.ofMillis(50),
+                        Duration.ofMillis(500), Duration.ofSeconds(1), Duration.ofSeconds(30), Duration.ofSeconds(60))
+                .customize(builder);
+
+        try (var loader = builder.build()) {
+            var config = loader.getInitialConfig();
+            var scan = config.getProfile(CassandraSessionConfig.SCAN_PROFILE);
+
+            assertEquals(Duration.ofMillis(500), config.getDefaultProfile().getDuration(REQUEST_TIMEOUT));
+            assertEquals("ConstantSpeculativeExecutionPolicy",
+                    config.getDefaultProfile().getString(SPECULATIVE_EXECUTION_POLICY_CLASS));
+            assertEquals(Duration.ofSeconds(30), scan.getDuration(REQUEST_TIMEOUT));
+            assertEquals("NoSpeculativeExecutionPolicy", scan.getString(SPECULATIVE_EXECUTION_POLICY_CLASS));
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.earlystart.kirichenkovthreatrix.config;
+
+import com.earlystart.kirichenkovthreatrix.config.GraphQLExecutionConfig.ExecutionMode;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GraphQLExecutionConfigTest {
+
+    private final GraphQLExecutionConfig config = new GraphQLExecutionConfig();
+
+    @Test
+    void testGraphQLExecutor_InSyncMode_ShouldRunOnCallingThread() {
+        assertInstanceOf(SyncTaskExecutor.class, config.graphQLExecutor(ExecutionMode.SYNC, true, 64, 1000));
+    }
+
+    @Test
+    void testGraphQLExecutor_InAsyncMode_ShouldRunOnAnotherThread() throws Exception {
+        var executor = config.graphQLExecutor(ExecutionMode.ASYNC, true, 64, 1000);
+
+        var thread = CompletableFuture.supplyAsync(Thread::currentThread, executor).get(5, TimeUnit.SECONDS);
+
+        assertNotSame(Thread.currentThread(), thread);
+    }
+
+    @Test
+    void testGraphQLExecutor_WithFullQueue_ShouldRejectOperations() throws Exception {
+        var executor = assertInstanceOf(ThreadPoolTaskExecutor.class,
+                config.graphQLExecutor(ExecutionMode.ASYNC, false, 1, 1));
+        var release = new CountDownLatch(1);
+        try {
+            executor.execute(() -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            executor.execute(() -> { });
+
+            assertThrows(RejectedExecutionException.class, () -> executor.execute(() -> { }));
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+    }
+}
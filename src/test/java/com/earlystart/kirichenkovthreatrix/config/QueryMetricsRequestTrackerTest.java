@@ -0,0 +1,45 @@
+package com.earlystart.kirichenkovthreatrix.config;
+
+import com.datastax.oss.driver.api.core.config.DriverExecutionProfile;
+import com.datastax.oss.driver.api.core.cql.BatchStatement;
+import com.datastax.oss.driver.api.core.cql.DefaultBatchType;
+import com.datastax.oss.driver.api.core.cql.SimpleStatement;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class QueryMetricsRequestTrackerTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final QueryMetricsRequestTracker tracker = new QueryMetricsRequestTracker(registry, Duration.ofMillis(100));
+    private final DriverExecutionProfile profile = mock(DriverExecutionProfile.class);
+
+    @Test
+    void testOnSuccess_WithStatement_ShouldRecordLatencyPerQueryShape() {
+        var statement = SimpleStatement.newInstance("SELECT * FROM user WHERE email = ?", "john@example.com");
+
+        tracker.onSuccess(statement, TimeUnit.MILLISECONDS.toNanos(3), profile, null, "s0");
+        tracker.onSuccess(statement, TimeUnit.MILLISECONDS.toNanos(5), profile, null, "s0");
+
+        var timer = registry.get(QueryMetricsRequestTracker.QUERY_METRIC)
+                .tags("query", "SELECT * FROM user WHERE email = ?", "outcome", "success")
+                .timer();
+        assertEquals(2, timer.count());
+        assertEquals(8, timer.totalTime(TimeUnit.MILLISECONDS), 0.001);
+    }
+
+    @Test
+    void testShape_WithBatch_ShouldListDistinctStatements() {
+        var batch = BatchStatement.newInstance(DefaultBatchType.LOGGED,
+                SimpleStatement.newInstance("DELETE FROM user WHERE email = ?", "a@example.com"),
+                SimpleStatement.newInstance("DELETE FROM user WHERE email = ?", "b@example.com"));
+
+        assertEquals("BATCH LOGGED: DELETE FROM user WHERE email = ?", QueryMetricsRequestTracker.shape(batch));
+        assertEquals(2, QueryMetricsRequestTracker.boundValues(batch));
+    }
+}
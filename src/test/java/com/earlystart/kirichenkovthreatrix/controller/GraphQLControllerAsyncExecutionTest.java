@@ -0,0 +1,110 @@
+package com.earlystart.kirichenkovthreatrix.controller;
+
+import com.earlystart.kirichenkovthreatrix.config.ExecutionRejectedExceptionHandler;
+import com.earlystart.kirichenkovthreatrix.graphql.CachingPreparsedDocumentProvider;
+import com.earlystart.kirichenkovthreatrix.graphql.PersistedQueryStore;
+import com.earlystart.kirichenkovthreatrix.model.User;
+import com.earlystart.kirichenkovthreatrix.service.user.UserDataLoaders;
+import com.earlystart.kirichenkovthreatrix.service.user.UserService;
+import graphql.execution.instrumentation.Instrumentation;
+import graphql.schema.GraphQLSchema;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "threatrix.graphql.execution.mode=async",
+        "threatrix.graphql.execution.virtual-threads=false",
+        "threatrix.graphql.execution.pool-size=2"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("memory")
+class GraphQLControllerAsyncExecutionTest {
+    private static final String QUERY =
+            "{\"query\": \"{ getUserByEmail(email: \\\"async@example.com\\\") { email firstName } }\"}";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    @Qualifier("graphQLExecutor")
+    private Executor graphQLExecutor;
+
+    @Autowired
+    private GraphQLSchema schema;
+
+    @Autowired
+    private CachingPreparsedDocumentProvider documentProvider;
+
+    @Autowired
+    private UserDataLoaders userDataLoaders;
+
+    @Autowired
+    private List<Instrumentation> instrumentations;
+
+    @Autowired
+    private PersistedQueryStore persistedQueries;
+
+    @Test
+    void testGraphQLEndpoint_InAsyncMode_ShouldRunOperationOnExecutor() throws Exception {
+        userService.createUser(User.builder()
+                .email("async@example.com")
+                .firstName("Jane")
+                .lastName("Doe")
+                .password("password123")
+                .organization("AsyncOrg")
+                .build());
+        var pool = assertInstanceOf(ThreadPoolTaskExecutor.class, graphQLExecutor).getThreadPoolExecutor();
+        long tasks = pool.getTaskCount();
+
+        var pending = mockMvc.perform(post("/graphql")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(QUERY))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(pending))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.getUserByEmail.firstName").value("Jane"));
+        assertEquals(tasks + 1, pool.getTaskCount());
+    }
+
+    @Test
+    void testGraphQLEndpoint_WithRejectedExecution_ShouldReturnServiceUnavailable() throws Exception {
+        Executor rejecting = task -> {
+            throw new RejectedExecutionException("Queue is full");
+        };
+        var controller = new GraphQLController(schema, documentProvider, rejecting, userDataLoaders, instrumentations,
+                persistedQueries);
+        var standalone = MockMvcBuilders.standaloneSetup(controller)
+                .setControllerAdvice(new ExecutionRejectedExceptionHandler())
+                .build();
+
+        standalone.perform(post("/graphql")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(QUERY))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(jsonPath("$.error").value("Server is overloaded, retry later"));
+    }
+}
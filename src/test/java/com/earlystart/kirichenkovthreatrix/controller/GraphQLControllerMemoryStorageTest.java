@@ -0,0 +1,183 @@
+package com.earlystart.kirichenkovthreatrix.controller;
+
+import com.earlystart.kirichenkovthreatrix.dao.InMemoryUserDao;
+import com.earlystart.kirichenkovthreatrix.dao.UserDao;
+import com.earlystart.kirichenkovthreatrix.model.User;
+import com.earlystart.kirichenkovthreatrix.service.user.UserChangeSubscriptions;
+import com.earlystart.kirichenkovthreatrix.service.user.UserService;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("memory")
+class GraphQLControllerMemoryStorageTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserDao userDao;
+
+    @Autowired
+    private UserChangeSubscriptions userChangeSubscriptions;
+
+    @Test
+    void testMemoryProfile_ShouldServeUsersWithoutCassandra() {
+        var user = User.builder()
+                .email("memory@example.com")
+                .firstName("John")
+                .lastName("Doe")
+                .password("password123")
+                .organization("MyOrg")
+                .build();
+
+        userService.createUser(user);
+
+        assertEquals(InMemoryUserDao.class, AopUtils.getTargetClass(userDao));
+        assertEquals(user, userService.getUserByEmail("memory@example.com"));
+        assertEquals(1, userService.getUsersByOrganization("MyOrg", null, 10).size());
+    }
+
+    @Test
+    void testGraphQLEndpoint_WithInvalidCursor_ShouldReturnValidationError() throws Exception {
+        var pending = mockMvc.perform(post("/graphql")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"query\": \"{ getAllUsersConnection(after: \\\"not-a-cursor\\\") { edges { cursor } } }\"}"))
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(pending))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.errors[0].message").value("Invalid cursor"))
+                .andExpect(jsonPath("$.errors[0].extensions.classification").value("ValidationError"))
+                .andExpect(jsonPath("$.errors[0].path[0]").value("getAllUsersConnection"));
+    }
+
+    @Test
+    void testGraphQLEndpoint_ShouldWriteSpecificationJson() throws Exception {
+        userService.createUser(User.builder()
+                .email("endpoint@example.com")
+                .firstName("Jane")
+                .lastName("Doe")
+                .password("password123")
+                .organization("EndpointOrg")
+                .build());
+
+        var pending = mockMvc.perform(post("/graphql")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"query\": \"{ getUserByEmail(email: \\\"endpoint@example.com\\\") { email firstName } }\"}"))
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(pending))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.data.getUserByEmail.firstName").value("Jane"))
+                .andExpect(jsonPath("$.errors").doesNotExist());
+    }
+
+    @Test
+    void testGraphQLEndpoint_WithBatch_ShouldReturnResultsInOrder() throws Exception {
+        userService.createUser(User.builder()
+                .email("batch@example.com")
+                .firstName("Jane")
+                .lastName("Doe")
+                .password("password123")
+                .organization("BatchOrg")
+                .build());
+
+        var pending = mockMvc.perform(post("/graphql")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                [
+                                  {"query": "query ($email: String!) { getUserByEmail(email: $email) { firstName } }",
+                                   "variables": {"email": "batch@example.com"}},
+                                  {"query": "{ unknownField }"},
+                                  "not an operation",
+                                  {"query": "query ($org: String!) { getUsersByOrganization(organization: $org, limit: 10) { email } }",
+                                   "variables": {"org": "BatchOrg"}}
+                                ]"""))
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(pending))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(4))
+                .andExpect(jsonPath("$[0].data.getUserByEmail.firstName").value("Jane"))
+                .andExpect(jsonPath("$[1].errors[0].message").exists())
+                .andExpect(jsonPath("$[1].data").doesNotExist())
+                .andExpect(jsonPath("$[2].errors[0].message").value("Operation 2 is not a JSON object"))
+                .andExpect(jsonPath("$[3].data.getUsersByOrganization[0].email").value("batch@example.com"));
+    }
+
+    @Test
+    void testUserChangedSubscription_ShouldStreamChangesAsServerSentEvents() throws Exception {
+        userService.createUser(User.builder()
+                .email("leaving@example.com")
+                .firstName("John")
+                .lastName("Doe")
+                .password("password123")
+                .organization("StreamOrg")
+                .build());
+        var pending = mockMvc.perform(post("/graphql")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.TEXT_EVENT_STREAM)
+                        .content("{\"query\": \"subscription { userChanged(organization: \\\"StreamOrg\\\") { type email user { firstName } } }\"}"))
+                .andReturn();
+        awaitSubscription();
+
+        userService.createUser(User.builder()
+                .email("stream@example.com")
+                .firstName("Jane")
+                .lastName("Doe")
+                .password("password123")
+                .organization("StreamOrg")
+                .build());
+        userService.deleteUser("leaving@example.com");
+        userChangeSubscriptions.close();
+
+        var body = mockMvc.perform(asyncDispatch(pending))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        assertTrue(body.contains("event:next"), body);
+        assertTrue(body.contains("\"type\":\"CREATED\""), body);
+        assertTrue(body.contains("\"type\":\"DELETED\""), body);
+        assertTrue(body.contains("event:complete"), body);
+    }
+
+    @Test
+    void testClientId_ShouldTrustHeaderOnlyFromConfiguredProxies() {
+        var request = new MockHttpServletRequest();
+        request.setRemoteAddr("10.0.0.1");
+        request.addHeader("X-Client-Id", "spoofed");
+
+        assertEquals("10.0.0.1", GraphQLController.clientId(request, Set.of()));
+        assertEquals("spoofed", GraphQLController.clientId(request, Set.of("10.0.0.1")));
+        request.setUserPrincipal(() -> "jane");
+        assertEquals("jane", GraphQLController.clientId(request, Set.of("10.0.0.1")));
+    }
+
+    private void awaitSubscription() throws InterruptedException {
+        for (int i = 0; i < 100 && userChangeSubscriptions.size() == 0; i++) {
+            Thread.sleep(50);
+        }
+        assertEquals(1, userChangeSubscriptions.size());
+    }
+}
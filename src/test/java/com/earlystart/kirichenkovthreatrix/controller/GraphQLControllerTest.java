@@ -1,8 +1,10 @@
 package com.earlystart.kirichenkovthreatrix.controller;
 
 import com.datastax.oss.driver.api.core.CqlSession;
+import com.earlystart.kirichenkovthreatrix.model.OrganizationStats;
 import com.earlystart.kirichenkovthreatrix.model.User;
 import com.earlystart.kirichenkovthreatrix.service.user.UserService;
+import graphql.relay.Edge;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -14,6 +16,8 @@ import org.testcontainers.junit.jupiter.Testcontainers;
 
 import javax.validation.ValidationException;
 import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -81,6 +85,28 @@ class GraphQLControllerTest {
         assertThrows(ValidationException.class, () -> userService.createUser(invalidUser), "Wrong email");
     }
 
+    @Test
+    void testCreateUsers_WithOneInvalidUser_ShouldReportResultPerUser() {
+        var results = userService.createUsers(List.of(validUser, invalidUser)).join();
+
+        assertEquals(2, results.size());
+        assertTrue(results.get(0).isSuccess());
+        assertFalse(results.get(1).isSuccess());
+        assertEquals("Wrong email", results.get(1).getError());
+        assertNotNull(userService.getUserByEmail(validUser.getEmail()));
+    }
+
+    @Test
+    void testUpsertUsers_WhenUserExists_ShouldUpdateUser() {
+        userService.createUser(validUser);
+
+        validUser.setFirstName("UpdatedName");
+        var results = userService.upsertUsers(List.of(validUser)).join();
+
+        assertTrue(results.get(0).isSuccess());
+        assertEquals("UpdatedName", userService.getUserByEmail(validUser.getEmail()).getFirstName());
+    }
+
     @Test
     void testGetAllUsers_WithPaging_ShouldReturnLimitedUserList() {
         userService.createUser(validUser);
@@ -147,6 +173,47 @@ class GraphQLControllerTest {
         assertEquals(secondUser.getEmail(), foundUsers.get(0).getEmail());
     }
 
+    @Test
+    void testGetUsersByOrganizationConnection_WithCursor_ShouldContinueAfterPreviousPage() {
+        userService.createUser(validUser);
+
+        User secondUser = User.builder()
+                .email("zsecond@example.com")
+                .firstName("Jane")
+                .lastName("Doe")
+                .password("password456")
+                .organization("MyOrg")
+                .permissions("USER")
+                .build();
+        userService.createUser(secondUser);
+
+        var firstPage = userService.getUsersByOrganizationConnection("MyOrg", 1, null);
+        assertEquals(1, firstPage.getEdges().size());
+        assertEquals(validUser.getEmail(), firstPage.getEdges().get(0).getNode().getEmail());
+
+        var secondPage = userService.getUsersByOrganizationConnection(
+                "MyOrg", 1, firstPage.getPageInfo().getEndCursor().getValue());
+        assertEquals(1, secondPage.getEdges().size());
+        assertEquals(secondUser.getEmail(), secondPage.getEdges().get(0).getNode().getEmail());
+        assertTrue(secondPage.getPageInfo().isHasPreviousPage());
+    }
+
+    @Test
+    void testGetUsersByOrganizationConnection_WithColumns_ShouldReadOnlyThoseColumns() {
+        userService.createUser(validUser);
+
+        var page = userService.getUsersByOrganizationConnection("MyOrg", 10, null, Set.of("email", "firstname"));
+        var user = page.getEdges().stream()
+                .map(Edge::getNode)
+                .filter(node -> node.getEmail().equals(validUser.getEmail()))
+                .findFirst()
+                .orElseThrow();
+
+        assertEquals(validUser.getFirstName(), user.getFirstName());
+        assertNull(user.getPassword());
+        assertNull(user.getPermissions());
+    }
+
     @Test
     void testGetUsersByOrganization_WithInvalidOrganization_ShouldReturnEmpty() {
         var foundUsers = userService.getUsersByOrganization("nonexistentorganization", null, 1);
@@ -186,6 +253,65 @@ class GraphQLControllerTest {
         assertEquals("UpdatedLastName", updatedUser.getLastName());
     }
 
+    @Test
+    void testCreateOrUpdateUser_WhenOrganizationChanges_ShouldMoveUser() {
+        userService.createUser(validUser);
+
+        validUser.setOrganization("OtherOrg");
+        userService.createOrUpdateUser(validUser);
+
+        assertTrue(userService.getUsersByOrganization("MyOrg", null, 10).stream()
+                .noneMatch(user -> user.getEmail().equals(validUser.getEmail())));
+        assertTrue(userService.getUsersByOrganization("OtherOrg", null, 10).stream()
+                .anyMatch(user -> user.getEmail().equals(validUser.getEmail())));
+    }
+
+    @Test
+    void testOrganizationStats_AfterCreateMoveAndDelete_ShouldCountUsers() {
+        var first = User.builder().email("count1@example.com").firstName("John").lastName("Doe")
+                .password("password123").organization("CountOrgA").build();
+        var second = User.builder().email("count2@example.com").firstName("Jane").lastName("Doe")
+                .password("password123").organization("CountOrgA").build();
+        userService.createUser(first);
+        userService.createUser(second);
+        second.setOrganization("CountOrgB");
+        userService.createOrUpdateUser(second);
+        userService.deleteUser(first.getEmail());
+        userService.createUser(first);
+
+        var stats = userService.organizationStats(List.of("CountOrgA", "CountOrgB", "CountOrgC"));
+
+        assertEquals(List.of(1, 1, 0), stats.stream().map(OrganizationStats::getUserCount).toList());
+        assertEquals(1, userService.organizationUserCount("CountOrgB"));
+    }
+
+    @Test
+    void testCreateOrUpdateUser_WithoutOptionalFields_ShouldClearThem() {
+        userService.createUser(validUser);
+
+        var update = User.builder()
+                .email(validUser.getEmail())
+                .firstName(validUser.getFirstName())
+                .lastName(validUser.getLastName())
+                .password(validUser.getPassword())
+                .build();
+        var updatedUser = userService.createOrUpdateUser(update);
+
+        assertNull(updatedUser.getOrganization());
+        assertNull(userService.getUserByEmail(validUser.getEmail()).getPermissions());
+        assertTrue(userService.getUsersByOrganization(validUser.getOrganization(), null, 10).stream()
+                .noneMatch(user -> user.getEmail().equals(validUser.getEmail())));
+    }
+
+    @Test
+    void testDeleteUserIfExists_ShouldReportWhetherUserExisted() {
+        userService.createUser(validUser);
+
+        assertTrue(userService.deleteUserIfExists(validUser.getEmail()));
+        assertFalse(userService.deleteUserIfExists(validUser.getEmail()));
+        assertNull(userService.getUserByEmail(validUser.getEmail()));
+    }
+
     @Test
     void testDeleteUser_WithValidEmail_ShouldDeleteUser() {
         userService.createUser(validUser);
@@ -0,0 +1,63 @@
+package com.earlystart.kirichenkovthreatrix.controller;
+
+import com.earlystart.kirichenkovthreatrix.service.user.UserExportService;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class UserExportControllerTest {
+    private static final String TOKEN = "export-token";
+
+    private final UserExportService exportService = mock(UserExportService.class);
+
+    @Test
+    void testExportUsers_WithoutConfiguredToken_ShouldBeNotFound() throws Exception {
+        mockMvc("").perform(get("/users/export").header("Authorization", "Bearer "))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void testExportUsers_WithWrongToken_ShouldBeUnauthorized() throws Exception {
+        var mockMvc = mockMvc(TOKEN);
+
+        mockMvc.perform(get("/users/export")).andExpect(status().isUnauthorized());
+        mockMvc.perform(get("/users/export").header("Authorization", "Bearer wrong")).andExpect(status().isUnauthorized());
+        verifyNoInteractions(exportService);
+    }
+
+    @Test
+    void testExportUsers_WithExportsRunning_ShouldBeTooManyRequests() throws Exception {
+        when(exportService.reserve()).thenReturn(Optional.empty());
+
+        mockMvc(TOKEN).perform(get("/users/export").header("Authorization", "Bearer " + TOKEN))
+                .andExpect(status().isTooManyRequests());
+    }
+
+    @Test
+    void testExportUsers_WithToken_ShouldStreamExport() throws Exception {
+        when(exportService.reserve()).thenReturn(Optional.of(out -> out.write("{}\n".getBytes(StandardCharsets.UTF_8))));
+        var mockMvc = mockMvc(TOKEN);
+
+        var pending = mockMvc.perform(get("/users/export").header("Authorization", "Bearer " + TOKEN)).andReturn();
+
+        mockMvc.perform(asyncDispatch(pending))
+                .andExpect(status().isOk())
+                .andExpect(content().string("{}\n"));
+    }
+
+    private MockMvc mockMvc(String token) {
+        var controller = new UserExportController(exportService);
+        ReflectionTestUtils.setField(controller, "token", token);
+        return MockMvcBuilders.standaloneSetup(controller).build();
+    }
+}
@@ -0,0 +1,111 @@
+package com.earlystart.kirichenkovthreatrix.dao;
+
+import com.earlystart.kirichenkovthreatrix.model.User;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.cassandra.core.query.CassandraPageRequest;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryUserDaoTest {
+
+    private final InMemoryUserDao userDao = new InMemoryUserDao(null, Duration.ZERO);
+
+    @Test
+    void testFindAllWithPaging_ShouldReturnUsersInEmailOrder() {
+        userDao.saveUser(user("c@example.com", "OrgA"));
+        userDao.saveUser(user("a@example.com", "OrgA"));
+        userDao.saveUser(user("b@example.com", null));
+
+        assertEquals(List.of("a@example.com", "b@example.com", "c@example.com"), emails(userDao.findAllWithPaging("", 10)));
+        assertEquals(List.of("b@example.com"), emails(userDao.findAllWithPaging("a@example.com", 1)));
+    }
+
+    @Test
+    void testSaveUser_WithNewOrganization_ShouldMoveUserBetweenIndexes() {
+        userDao.saveUser(user("a@example.com", "OrgA"));
+
+        var saved = userDao.saveUser(user("a@example.com", "OrgB"));
+
+        assertEquals("OrgA", saved.previousOrganization());
+        assertTrue(saved.movedOrganization());
+        assertTrue(userDao.findByOrganizationWithPagination("OrgA", "", 10).isEmpty());
+        assertEquals(List.of("a@example.com"), emails(userDao.findByOrganizationWithPagination("OrgB", "", 10)));
+    }
+
+    @Test
+    void testFindByOrganization_WithPagingState_ShouldContinueAfterLastEmail() {
+        for (var email : List.of("a@example.com", "b@example.com", "c@example.com")) {
+            userDao.saveUser(user(email, "OrgA"));
+        }
+        userDao.saveUser(user("d@example.com", "OrgB"));
+
+        var first = userDao.findByOrganization("OrgA", CassandraPageRequest.first(2));
+        var second = userDao.findByOrganization("OrgA", first.nextPageable());
+
+        assertEquals(List.of("a@example.com", "b@example.com"), emails(first.getContent()));
+        assertTrue(first.hasNext());
+        assertEquals(List.of("c@example.com"), emails(second.getContent()));
+        assertFalse(second.hasNext());
+    }
+
+    @Test
+    void testDeleteUserIfExists_ShouldReportWhetherUserExisted() {
+        userDao.saveUser(user("a@example.com", "OrgA"));
+
+        assertEquals(new DeletedUser(true, "OrgA"), userDao.deleteUserIfExists("a@example.com", null));
+        assertFalse(userDao.deleteUserIfExists("a@example.com", null).existed());
+        assertFalse(userDao.existsByEmail("a@example.com"));
+        assertTrue(userDao.findByOrganizationWithPagination("OrgA", "", 10).isEmpty());
+    }
+
+    @Test
+    void testCountUsersByOrganizations_ShouldFollowCreatesMovesAndDeletes() {
+        userDao.saveUser(user("a@example.com", "OrgA"));
+        userDao.saveUser(user("b@example.com", "OrgA"));
+        userDao.saveUser(user("a@example.com", "OrgA"));
+        userDao.saveUser(user("b@example.com", "OrgB"));
+        userDao.saveUser(user("c@example.com", "OrgB"));
+        userDao.deleteUser("c@example.com", "OrgB");
+
+        assertEquals(Map.of("OrgA", 1L, "OrgB", 1L, "OrgC", 0L),
+                userDao.countUsersByOrganizations(List.of("OrgA", "OrgB", "OrgC")));
+    }
+
+    @Test
+    void testSnapshot_ShouldRestoreUsersAndIndexes(@TempDir Path directory) throws IOException {
+        var snapshot = directory.resolve("users.snapshot").toString();
+        var source = new InMemoryUserDao(snapshot, Duration.ZERO);
+        var saved = user("a@example.com", "OrgA");
+        saved.setPermissions(null);
+        source.saveUser(saved);
+        source.snapshot();
+
+        var restored = new InMemoryUserDao(snapshot, Duration.ZERO);
+        restored.start();
+
+        assertEquals(saved, restored.findById("a@example.com").orElseThrow());
+        assertEquals(List.of(saved), restored.findByOrganizationWithPagination("OrgA", "", 10));
+    }
+
+    private static User user(String email, String organization) {
+        return User.builder()
+                .email(email)
+                .firstName("John")
+                .lastName("Doe")
+                .password("password123")
+                .organization(organization)
+                .permissions("ADMIN")
+                .build();
+    }
+
+    private static List<String> emails(List<User> users) {
+        return users.stream().map(User::getEmail).toList();
+    }
+}
@@ -0,0 +1,137 @@
+package com.earlystart.kirichenkovthreatrix.dao;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.AsyncResultSet;
+import com.datastax.oss.driver.api.core.cql.BoundStatement;
+import com.datastax.oss.driver.api.core.cql.BoundStatementBuilder;
+import com.datastax.oss.driver.api.core.cql.PreparedStatement;
+import com.datastax.oss.driver.api.core.cql.ResultSet;
+import com.datastax.oss.driver.api.core.cql.Row;
+import com.datastax.oss.driver.api.core.cql.Statement;
+import com.earlystart.kirichenkovthreatrix.model.User;
+import com.earlystart.kirichenkovthreatrix.model.UserUpdate;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.data.cassandra.core.convert.CassandraConverter;
+import org.springframework.data.cassandra.core.query.CassandraPageRequest;
+import org.springframework.data.domain.PageRequest;
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+
+import static com.earlystart.kirichenkovthreatrix.config.CassandraSessionConfig.SCAN_PROFILE;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.*;
+
+class UserDaoCustomImplTest {
+
+    private final CqlSession session = mock(CqlSession.class);
+    private final UserDaoCustomImpl userDao = new UserDaoCustomImpl(session, mock(CassandraConverter.class));
+
+    @Test
+    void testFindAllWithPaging_ShouldRunInScanProfile() {
+        var prepared = mock(PreparedStatement.class);
+        var bound = mock(BoundStatement.class);
+        var scan = mock(BoundStatement.class);
+        var result = mock(ResultSet.class);
+        when(session.prepare(contains("ALLOW FILTERING"))).thenReturn(prepared);
+        when(prepared.bind(any(), any())).thenReturn(bound);
+        when(bound.setExecutionProfileName(SCAN_PROFILE)).thenReturn(scan);
+        when(session.execute(scan)).thenReturn(result);
+        when(result.iterator()).thenReturn(Collections.emptyIterator());
+
+        assertTrue(userDao.findAllWithPaging("a@example.com", 10).isEmpty());
+
+        verify(session).execute(scan);
+    }
+
+    @Test
+    void testSaveUser_WithNewUser_ShouldLeaveNullsUnset() {
+        var insert = stubInsert(null);
+
+        userDao.saveUser(new User("a@example.com", "A", null, "secret", null, null));
+
+        verify(insert).setString(1, "A");
+        verify(insert, never()).setString(anyInt(), isNull());
+    }
+
+    @Test
+    void testSaveUser_WithExistingUser_ShouldClearNullFields() {
+        var insert = stubInsert(mock(Row.class));
+
+        userDao.saveUser(new User("a@example.com", "A", null, "secret", null, null));
+
+        verify(insert).setString(2, null);
+    }
+
+    @Test
+    void testUpdateUser_ShouldWriteOnlyGivenColumnsWithoutReading() {
+        var prepared = stubWrites();
+        var builder = mock(BoundStatementBuilder.class, RETURNS_SELF);
+        when(prepared.boundStatementBuilder()).thenReturn(builder);
+        when(builder.build()).thenReturn(mock(BoundStatement.class, RETURNS_SELF));
+        var current = new User("a@example.com", "A", "Doe", "secret", "OrgA", null);
+
+        var saved = userDao.updateUser(UserUpdate.builder().email("a@example.com").lastName("Smith").build(), current);
+
+        assertEquals(new User("a@example.com", "A", "Smith", "secret", "OrgA", null), saved.user());
+        verify(session).prepare("UPDATE user SET lastname = ? WHERE email = ?");
+        verify(session).prepare("UPDATE users_by_organization SET lastname = ? WHERE organization = ? AND email = ?");
+        verify(session, never()).prepare(startsWith("SELECT"));
+        verify(session, times(1)).executeAsync(any(Statement.class));
+    }
+
+    @Test
+    void testDeleteUser_ShouldNotReadFirst() {
+        stubWrites();
+
+        userDao.deleteUser("a@example.com", "OrgA");
+
+        verify(session, never()).prepare(startsWith("SELECT"));
+        // The row and index deletes in one batch, then the counter.
+        verify(session, times(2)).executeAsync(any(Statement.class));
+    }
+
+    @Test
+    void testFindAll_WithForgedPagingState_ShouldRejectBeforeQuerying() {
+        var prepared = mock(PreparedStatement.class);
+        when(session.prepare(startsWith("SELECT"))).thenReturn(prepared);
+        when(prepared.bind()).thenReturn(mock(BoundStatement.class, RETURNS_SELF));
+        var forged = CassandraPageRequest.of(PageRequest.of(0, 10), ByteBuffer.wrap(new byte[]{1, 2, 3}));
+
+        assertThrows(InvalidDataAccessApiUsageException.class, () -> userDao.findAll(forged, UserColumns.ALL));
+
+        verify(session, never()).execute(any(Statement.class));
+    }
+
+    private PreparedStatement stubWrites() {
+        var prepared = mock(PreparedStatement.class);
+        when(session.prepare(anyString())).thenReturn(prepared);
+        when(prepared.bind(any(Object[].class))).thenReturn(mock(BoundStatement.class, RETURNS_SELF));
+        when(session.executeAsync(any(Statement.class)))
+                .thenReturn(CompletableFuture.completedFuture(mock(AsyncResultSet.class)));
+        return prepared;
+    }
+
+    private BoundStatementBuilder stubInsert(Row previous) {
+        var select = mock(PreparedStatement.class);
+        var insert = mock(PreparedStatement.class);
+        var builder = mock(BoundStatementBuilder.class, RETURNS_SELF);
+        var previousRows = mock(AsyncResultSet.class);
+        when(session.prepare(startsWith("SELECT organization"))).thenReturn(select);
+        when(session.prepare(startsWith("INSERT INTO user "))).thenReturn(insert);
+        when(select.bind(any(Object[].class))).thenReturn(mock(BoundStatement.class));
+        when(insert.boundStatementBuilder()).thenReturn(builder);
+        when(builder.build()).thenReturn(mock(BoundStatement.class));
+        when(previousRows.one()).thenReturn(previous);
+        when(session.executeAsync(any(Statement.class))).thenReturn(CompletableFuture.completedFuture(previousRows));
+        return builder;
+    }
+}
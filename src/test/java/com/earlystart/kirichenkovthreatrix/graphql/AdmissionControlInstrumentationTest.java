@@ -0,0 +1,106 @@
+package com.earlystart.kirichenkovthreatrix.graphql;
+
+import graphql.ExecutionInput;
+import graphql.ExecutionResult;
+import graphql.GraphQL;
+import graphql.schema.idl.RuntimeWiring;
+import graphql.schema.idl.SchemaGenerator;
+import graphql.schema.idl.SchemaParser;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdmissionControlInstrumentationTest {
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final CompletableFuture<List<Map<String, String>>> pendingUsers = new CompletableFuture<>();
+
+    @Test
+    void testExecute_WithCostAboveMaximum_ShouldRejectBeforeExecution() {
+        var graphQL = graphQL(new AdmissionControlInstrumentation(
+                new QueryCostCalculator(100), 100, 10, 20, 1000, 10, 1000, 1000, nanos::get));
+
+        var result = execute(graphQL, "{ users(limit: 1000) { email } }", "client");
+
+        assertNull(result.getData());
+        assertEquals("Query cost 1001 exceeds the maximum of 100", result.getErrors().get(0).getMessage());
+        assertEquals(QueryRejectedException.TOO_EXPENSIVE, result.getErrors().get(0).getExtensions().get("code"));
+    }
+
+    @Test
+    void testExecute_WithTooManyAliases_ShouldReject() {
+        var graphQL = graphQL(new AdmissionControlInstrumentation(
+                new QueryCostCalculator(100), 100, 10, 1, 1000, 10, 1000, 1000, nanos::get));
+
+        var result = execute(graphQL, "{ a: user { email } b: user { email } }", "client");
+
+        assertEquals("Query uses 2 aliases, the maximum is 1", result.getErrors().get(0).getMessage());
+    }
+
+    @Test
+    void testExecute_WithExhaustedClientBudget_ShouldRejectUntilRefilled() {
+        var graphQL = graphQL(new AdmissionControlInstrumentation(
+                new QueryCostCalculator(100), 100, 10, 20, 1000, 10, 10, 25, nanos::get));
+        var query = "{ users(limit: 10) { email } }";
+
+        assertTrue(execute(graphQL, query, "client").getErrors().isEmpty());
+        assertTrue(execute(graphQL, query, "client").getErrors().isEmpty());
+        var rejected = execute(graphQL, query, "client");
+        var otherClient = execute(graphQL, query, "other");
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(2));
+        var refilled = execute(graphQL, query, "client");
+
+        assertEquals(QueryRejectedException.BUDGET_EXHAUSTED, rejected.getErrors().get(0).getExtensions().get("code"));
+        assertTrue(otherClient.getErrors().isEmpty());
+        assertTrue(refilled.getErrors().isEmpty());
+    }
+
+    @Test
+    void testExecute_WithInFlightCostAboveThreshold_ShouldShedExpensiveQueriesOnly() {
+        var instrumentation = new AdmissionControlInstrumentation(
+                new QueryCostCalculator(100), 100, 10, 20, 30, 10, 1000, 1000, nanos::get);
+        var graphQL = graphQL(instrumentation);
+
+        var running = graphQL.executeAsync(input("{ pendingUsers(limit: 20) { email } }", "client"));
+        var expensive = execute(graphQL, "{ users(limit: 10) { email } }", "client");
+        var cheap = execute(graphQL, "{ user { email } }", "client");
+        pendingUsers.complete(List.of());
+        running.join();
+
+        assertEquals(QueryRejectedException.OVERLOADED, expensive.getErrors().get(0).getExtensions().get("code"));
+        assertTrue(cheap.getErrors().isEmpty());
+        assertEquals(0, instrumentation.inFlightCost());
+    }
+
+    private GraphQL graphQL(AdmissionControlInstrumentation instrumentation) {
+        var typeDefinitions = new SchemaParser().parse("""
+                type Query { user: User, users(limit: Int!): [User], pendingUsers(limit: Int!): [User] }
+                type User { email: String }
+                """);
+        var wiring = RuntimeWiring.newRuntimeWiring()
+                .type("Query", type -> type
+                        .dataFetcher("user", env -> Map.of("email", "john@example.com"))
+                        .dataFetcher("users", env -> List.of(Map.of("email", "john@example.com")))
+                        .dataFetcher("pendingUsers", env -> pendingUsers))
+                .build();
+        var schema = new SchemaGenerator().makeExecutableSchema(typeDefinitions, wiring);
+        return GraphQL.newGraphQL(schema).instrumentation(instrumentation).build();
+    }
+
+    private static ExecutionResult execute(GraphQL graphQL, String query, String clientId) {
+        return graphQL.execute(input(query, clientId));
+    }
+
+    private static ExecutionInput input(String query, String clientId) {
+        return ExecutionInput.newExecutionInput()
+                .query(query)
+                .graphQLContext(Map.of(AdmissionControlInstrumentation.CLIENT_ID, clientId))
+                .build();
+    }
+}
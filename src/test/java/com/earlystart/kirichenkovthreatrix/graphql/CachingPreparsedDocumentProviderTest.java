@@ -0,0 +1,76 @@
+package com.earlystart.kirichenkovthreatrix.graphql;
+
+import graphql.ExecutionInput;
+import graphql.GraphqlErrorBuilder;
+import graphql.execution.preparsed.PreparsedDocumentEntry;
+import graphql.parser.Parser;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CachingPreparsedDocumentProviderTest {
+
+    private CachingPreparsedDocumentProvider provider;
+    private AtomicInteger parseCount;
+    private Function<ExecutionInput, PreparsedDocumentEntry> parseAndValidate;
+
+    @BeforeEach
+    void setUp() {
+        provider = new CachingPreparsedDocumentProvider(2);
+        parseCount = new AtomicInteger();
+        parseAndValidate = input -> {
+            parseCount.incrementAndGet();
+            return new PreparsedDocumentEntry(Parser.parse(input.getQuery()));
+        };
+    }
+
+    @Test
+    void testGetDocument_WithRepeatedQuery_ShouldParseOnce() {
+        var input = input("{ getUserByEmail(email: \"a@example.com\") { email } }", null);
+
+        var first = provider.getDocumentAsync(input, parseAndValidate).join();
+        var second = provider.getDocumentAsync(input, parseAndValidate).join();
+
+        assertSame(first, second);
+        assertEquals(1, parseCount.get());
+        assertEquals(1, provider.stats().hitCount());
+        assertEquals(1, provider.stats().missCount());
+    }
+
+    @Test
+    void testGetDocument_WithDifferentOperationName_ShouldParseAgain() {
+        var query = "query A { getUserByEmail(email: \"a@example.com\") { email } } query B { getUserByEmail(email: \"b@example.com\") { email } }";
+
+        provider.getDocumentAsync(input(query, "A"), parseAndValidate).join();
+        provider.getDocumentAsync(input(query, "B"), parseAndValidate).join();
+
+        assertEquals(2, parseCount.get());
+    }
+
+    @Test
+    void testGetDocument_WithInvalidDocument_ShouldNotCache() {
+        Function<ExecutionInput, PreparsedDocumentEntry> failing = input -> {
+            parseCount.incrementAndGet();
+            return new PreparsedDocumentEntry(GraphqlErrorBuilder.newError().message("Invalid").build());
+        };
+        var input = input("{ unknownField }", null);
+
+        provider.getDocumentAsync(input, failing).join();
+        var entry = provider.getDocumentAsync(input, failing).join();
+
+        assertTrue(entry.hasErrors());
+        assertEquals(2, parseCount.get());
+        assertEquals(0, provider.size());
+    }
+
+    private static ExecutionInput input(String query, String operationName) {
+        return ExecutionInput.newExecutionInput()
+                .query(query)
+                .operationName(operationName)
+                .build();
+    }
+}
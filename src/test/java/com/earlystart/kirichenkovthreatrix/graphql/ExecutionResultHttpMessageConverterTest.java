@@ -0,0 +1,81 @@
+package com.earlystart.kirichenkovthreatrix.graphql;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import graphql.ExecutionResult;
+import graphql.GraphqlErrorBuilder;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExecutionResultHttpMessageConverterTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ExecutionResultHttpMessageConverter converter = new ExecutionResultHttpMessageConverter(objectMapper);
+
+    @Test
+    void testWrite_WithDataAndErrors_ShouldMatchSpecificationSerialization() throws Exception {
+        var user = new LinkedHashMap<String, Object>();
+        user.put("email", "john@example.com");
+        user.put("age", 42);
+        user.put("score", new BigDecimal("1.50"));
+        user.put("active", true);
+        user.put("permissions", Arrays.asList("ADMIN", null));
+        user.put("lastName", null);
+        var result = ExecutionResult.newExecutionResult()
+                .data(Map.of("getAllUsers", List.of(user)))
+                .addError(GraphqlErrorBuilder.newError().message("Partial failure").build())
+                .extensions(Map.of("cost", 3L))
+                .build();
+
+        var message = new MockHttpOutputMessage();
+        converter.write(result, MediaType.APPLICATION_JSON, message);
+
+        assertEquals(objectMapper.readTree(objectMapper.writeValueAsString(result.toSpecification())),
+                objectMapper.readTree(message.getBodyAsString()));
+        assertEquals(MediaType.APPLICATION_JSON, message.getHeaders().getContentType());
+    }
+
+    @Test
+    void testWrite_WithoutData_ShouldOmitDataField() throws Exception {
+        var result = ExecutionResult.newExecutionResult()
+                .addError(GraphqlErrorBuilder.newError().message("Invalid query").build())
+                .build();
+
+        var message = new MockHttpOutputMessage();
+        converter.write(result, MediaType.APPLICATION_JSON, message);
+
+        var body = objectMapper.readTree(message.getBodyAsString());
+        assertFalse(body.has("data"));
+        assertEquals("Invalid query", body.get("errors").get(0).get("message").asText());
+    }
+
+    @Test
+    void testWrite_WithBatch_ShouldWriteResultsInOrder() throws Exception {
+        var first = ExecutionResult.newExecutionResult().data(Map.of("deleteUser", true)).build();
+        var second = ExecutionResult.newExecutionResult()
+                .addError(GraphqlErrorBuilder.newError().message("Invalid query").build())
+                .build();
+
+        var message = new MockHttpOutputMessage();
+        converter.write(new ExecutionResultBatch(List.of(first, second)), MediaType.APPLICATION_JSON, message);
+
+        assertEquals(objectMapper.readTree(objectMapper.writeValueAsString(List.of(first.toSpecification(), second.toSpecification()))),
+                objectMapper.readTree(message.getBodyAsString()));
+    }
+
+    @Test
+    void testCanRead_ShouldOnlySupportWriting() {
+        assertFalse(converter.canRead(ExecutionResult.class, MediaType.APPLICATION_JSON));
+        assertTrue(converter.canWrite(ExecutionResult.class, MediaType.APPLICATION_JSON));
+        assertTrue(converter.canWrite(ExecutionResultBatch.class, MediaType.APPLICATION_JSON));
+        assertFalse(converter.canWrite(Map.class, MediaType.APPLICATION_JSON));
+    }
+}
@@ -0,0 +1,65 @@
+package com.earlystart.kirichenkovthreatrix.graphql;
+
+import graphql.GraphQL;
+import graphql.schema.idl.RuntimeWiring;
+import graphql.schema.idl.SchemaGenerator;
+import graphql.schema.idl.SchemaParser;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricsInstrumentationTest {
+
+    private SimpleMeterRegistry registry;
+    private GraphQL graphQL;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        var typeDefinitions = new SchemaParser().parse("""
+                type Query { user: User, failing: String }
+                type User { email: String }
+                """);
+        var wiring = RuntimeWiring.newRuntimeWiring()
+                .type("Query", type -> type
+                        .dataFetcher("user", env -> Map.of("email", "john@example.com"))
+                        .dataFetcher("failing", env -> {
+                            throw new IllegalStateException("Boom");
+                        }))
+                .build();
+        var schema = new SchemaGenerator().makeExecutableSchema(typeDefinitions, wiring);
+        graphQL = GraphQL.newGraphQL(schema)
+                .instrumentation(new MetricsInstrumentation(registry))
+                .build();
+    }
+
+    @Test
+    void testExecute_WithNamedOperation_ShouldRecordOperationPhasesAndResolvers() {
+        graphQL.execute("query FindUser { user { email } }");
+
+        var request = registry.get(MetricsInstrumentation.REQUEST_METRIC)
+                .tags("operation", "FindUser", "outcome", "success")
+                .timer();
+        assertEquals(1, request.count());
+        assertEquals(1, registry.get(MetricsInstrumentation.PHASE_METRIC).tag("phase", "parse").timer().count());
+        assertEquals(1, registry.get(MetricsInstrumentation.PHASE_METRIC).tag("phase", "validation").timer().count());
+        assertEquals(1, registry.get(MetricsInstrumentation.DATA_FETCHER_METRIC).tag("field", "Query.user").timer().count());
+        assertNull(registry.find(MetricsInstrumentation.DATA_FETCHER_METRIC).tag("field", "User.email").timer());
+    }
+
+    @Test
+    void testExecute_WithFailingResolver_ShouldCountErrors() {
+        graphQL.execute("{ failing }");
+
+        assertEquals(1, registry.get(MetricsInstrumentation.REQUEST_METRIC)
+                .tags("operation", MetricsInstrumentation.ANONYMOUS, "outcome", "error")
+                .timer().count());
+        assertEquals(1, registry.get(MetricsInstrumentation.ERRORS_METRIC)
+                .tags("operation", MetricsInstrumentation.ANONYMOUS, "classification", "DataFetchingException")
+                .counter().count());
+    }
+}
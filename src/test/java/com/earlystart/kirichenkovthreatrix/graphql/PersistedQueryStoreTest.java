@@ -0,0 +1,73 @@
+package com.earlystart.kirichenkovthreatrix.graphql;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PersistedQueryStoreTest {
+    private static final String QUERY = "{ getUserByEmail(email: \"a@example.com\") { email } }";
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void testResolve_WithUnknownHash_ShouldAskForQueryThenServeFromHash() throws IOException {
+        var store = store(false, "");
+        var extensions = extensions(PersistedQueryStore.sha256(QUERY));
+
+        var miss = assertThrows(PersistedQueryException.class, () -> store.resolve(null, extensions));
+        assertEquals(QUERY, store.resolve(QUERY, extensions));
+        assertEquals(QUERY, store.resolve(null, extensions));
+
+        assertEquals("PersistedQueryNotFound", miss.getMessage());
+        assertEquals(1, count("miss"));
+        assertEquals(1, count("registered"));
+        assertEquals(1, count("hit"));
+    }
+
+    @Test
+    void testResolve_WithWrongHash_ShouldReject() throws IOException {
+        var store = store(false, "");
+
+        var error = assertThrows(PersistedQueryException.class,
+                () -> store.resolve(QUERY, extensions(PersistedQueryStore.sha256("{ other }"))));
+
+        assertEquals(PersistedQueryException.HASH_MISMATCH, error.getCode());
+    }
+
+    @Test
+    void testResolve_WithAllowlist_ShouldOnlyAcceptPreloadedQueries(@TempDir Path directory) throws IOException {
+        var manifest = directory.resolve("persisted-queries.json");
+        Files.writeString(manifest, new ObjectMapper().writeValueAsString(Map.of(PersistedQueryStore.sha256(QUERY), QUERY)));
+        var store = store(true, manifest.toUri().toString());
+        var other = "{ getAllUsers(limit: 10) { email } }";
+
+        assertEquals(QUERY, store.resolve(null, extensions(PersistedQueryStore.sha256(QUERY))));
+        assertEquals(QUERY, store.resolve(QUERY, null));
+        assertEquals(PersistedQueryException.NOT_ALLOWED,
+                assertThrows(PersistedQueryException.class, () -> store.resolve(other, null)).getCode());
+        assertEquals(PersistedQueryException.NOT_ALLOWED,
+                assertThrows(PersistedQueryException.class,
+                        () -> store.resolve(other, extensions(PersistedQueryStore.sha256(other)))).getCode());
+    }
+
+    private PersistedQueryStore store(boolean allowlistOnly, String preload) throws IOException {
+        return new PersistedQueryStore(new ObjectMapper(), new DefaultResourceLoader(), registry, 100, allowlistOnly, preload);
+    }
+
+    private double count(String result) {
+        return registry.get(PersistedQueryStore.METRIC).tag("result", result).counter().count();
+    }
+
+    private static Map<String, Object> extensions(String hash) {
+        return Map.of("persistedQuery", Map.of("version", 1, "sha256Hash", hash));
+    }
+}
@@ -0,0 +1,71 @@
+package com.earlystart.kirichenkovthreatrix.graphql;
+
+import graphql.execution.CoercedVariables;
+import graphql.parser.Parser;
+import graphql.schema.GraphQLSchema;
+import graphql.schema.idl.RuntimeWiring;
+import graphql.schema.idl.SchemaGenerator;
+import graphql.schema.idl.SchemaParser;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueryCostCalculatorTest {
+
+    static final GraphQLSchema SCHEMA = new SchemaGenerator().makeExecutableSchema(new SchemaParser().parse("""
+            type Query {
+              user(email: String): User
+              users(limit: Int!): [User]
+              usersConnection(first: Int): UserConnection
+              organizations: [String]
+            }
+            type User { email: String, firstName: String }
+            type UserConnection { edges: [UserEdge] }
+            type UserEdge { node: User }
+            """), RuntimeWiring.MOCKED_WIRING);
+
+    private final QueryCostCalculator calculator = new QueryCostCalculator(100);
+
+    @Test
+    void testCalculate_WithSingleLookup_ShouldCountFields() {
+        var cost = calculate("{ user(email: \"a@example.com\") { email firstName } }", Map.of());
+
+        assertEquals(new QueryCost(3, 2, 0), cost);
+    }
+
+    @Test
+    void testCalculate_WithLimitVariable_ShouldMultiplySelections() {
+        var cost = calculate("query($limit: Int!) { users(limit: $limit) { email firstName } }", Map.of("limit", 1000));
+
+        assertEquals(1 + 1000 * 2, cost.cost());
+    }
+
+    @Test
+    void testCalculate_WithAliases_ShouldSumAndCountThem() {
+        var cost = calculate("{ a: users(limit: 10) { email } b: users(limit: 10) { email } }", Map.of());
+
+        assertEquals(2 * (1 + 10), cost.cost());
+        assertEquals(2, cost.aliases());
+    }
+
+    @Test
+    void testCalculate_WithConnection_ShouldNotMultiplyEdgesAgain() {
+        var cost = calculate("{ usersConnection(first: 20) { edges { node { email } } } }", Map.of());
+
+        assertEquals(1 + 20 * (1 + 1 + 1), cost.cost());
+        assertEquals(4, cost.depth());
+    }
+
+    @Test
+    void testCalculate_WithUnboundedList_ShouldUseDefaultListSize() {
+        var cost = calculate("{ usersConnection { edges { node { email } } } }", Map.of());
+
+        assertEquals(1 + (1 + 100 * (1 + 1)), cost.cost());
+    }
+
+    private QueryCost calculate(String query, Map<String, Object> variables) {
+        return calculator.calculate(SCHEMA, Parser.parse(query), null, CoercedVariables.of(variables));
+    }
+}
@@ -0,0 +1,144 @@
+package com.earlystart.kirichenkovthreatrix.graphql;
+
+import com.earlystart.kirichenkovthreatrix.dao.InMemoryUserDao;
+import com.earlystart.kirichenkovthreatrix.service.user.LocalUserCacheInvalidationBus;
+import com.earlystart.kirichenkovthreatrix.service.user.LocalUserChangeBus;
+import com.earlystart.kirichenkovthreatrix.service.user.UserCache;
+import com.earlystart.kirichenkovthreatrix.service.user.UserChangeNotifier;
+import com.earlystart.kirichenkovthreatrix.service.user.UserChangeSubscriptions;
+import com.earlystart.kirichenkovthreatrix.service.user.UserService;
+import com.earlystart.kirichenkovthreatrix.service.user.UserServiceImpl;
+import com.earlystart.kirichenkovthreatrix.service.validator.UserValidator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import graphql.GraphQL;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserSchemaTest {
+
+    private final UserService userService = userService();
+    private final GraphQL generated = GraphQL.newGraphQL(UserSchema.generate(userService)).build();
+    private final GraphQL loaded;
+
+    UserSchemaTest() throws Exception {
+        loaded = GraphQL.newGraphQL(UserSchema.load(UserSchema.readSdl(), userService, new ObjectMapper())).build();
+    }
+
+    @Test
+    void testSdl_ShouldMatchAnnotatedService() throws Exception {
+        assertEquals(UserSchema.print(UserSchema.generate(userService)), UserSchema.readSdl(),
+                "Regenerate the schema file with: mvn -Pschema process-classes");
+    }
+
+    @Test
+    void testGenerate_FromServiceType_ShouldMatchServiceInstance() {
+        assertEquals(UserSchema.print(UserSchema.generate(userService)), UserSchema.print(UserSchema.generate(UserServiceImpl.class)));
+    }
+
+    @Test
+    void testLoad_WithQueries_ShouldResolveLikeGeneratedSchema() {
+        var created = execute(loaded, """
+                mutation {
+                  a: createUser(user: {email: "a@example.com", firstName: "A", lastName: "Doe", password: "password123", organization: "MyOrg"}) { email }
+                  createUsers(users: [
+                    {email: "b@example.com", firstName: "B", lastName: "Doe", password: "password123", organization: "MyOrg"},
+                    {email: "c@example.com", firstName: "C", lastName: "Doe", password: "password123", organization: "MyOrg"}
+                  ]) { email success error }
+                }""");
+        assertEquals(Map.of("email", "a@example.com"), ((Map<?, ?>) created.get("data")).get("a"));
+
+        for (var query : new String[]{
+                "{ getUserByEmail(email: \"a@example.com\") { email firstName organization } }",
+                "{ getAllUsers(limit: 10) { email } }",
+                "{ getUsersByOrganization(organization: \"MyOrg\", startAfterEmail: \"a@example.com\", limit: 10) { email } }",
+                "{ getUsersByOrganizationConnection(organization: \"MyOrg\", first: 2) "
+                        + "{ edges { cursor node { email } } pageInfo { hasNextPage hasPreviousPage endCursor } } }",
+                "{ getAllUsersConnection { edges { node { email } } pageInfo { startCursor } } }"}) {
+            assertEquals(execute(generated, query), execute(loaded, query), query);
+        }
+    }
+
+    @Test
+    void testLoad_WithNullUserInBulk_ShouldReportItAndWriteTheOthers() {
+        var query = """
+                mutation {
+                  createUsers(users: [
+                    null,
+                    {email: "%s", firstName: "A", lastName: "Doe", password: "password123"}
+                  ]) { email success error }
+                }""";
+
+        var generatedResults = writeResults(execute(generated, query.formatted("a@example.com")));
+        var loadedResults = writeResults(execute(loaded, query.formatted("b@example.com")));
+
+        assertEquals(generatedResults.get(0), loadedResults.get(0));
+        assertNull(loadedResults.get(0).get("email"));
+        assertEquals(false, loadedResults.get(0).get("success"));
+        assertEquals("User cannot be null", loadedResults.get(0).get("error"));
+        assertEquals(true, loadedResults.get(1).get("success"));
+        assertNotNull(userService.getUserByEmail("b@example.com"));
+    }
+
+    @Test
+    void testLoad_WithDeleteMutations_ShouldResolveLikeGeneratedSchema() {
+        execute(loaded, """
+                mutation {
+                  upsertUsers(users: [
+                    {email: "a@example.com", firstName: "A", lastName: "Doe", password: "password123"},
+                    {email: "b@example.com", firstName: "B", lastName: "Doe", password: "password123"}
+                  ]) { success }
+                }""");
+
+        assertEquals(execute(generated, "mutation { deleteUser(email: \"a@example.com\") deleteUserIfExists(email: \"missing@example.com\") }"),
+                execute(loaded, "mutation { deleteUser(email: \"b@example.com\") deleteUserIfExists(email: \"missing@example.com\") }"));
+        assertEquals(Map.of("data", Map.of("getAllUsers", List.of())), execute(loaded, "{ getAllUsers(limit: 10) { email } }"));
+    }
+
+    @Test
+    void testLoad_WithUpdateUser_ShouldResolveLikeGeneratedSchema() {
+        execute(loaded, """
+                mutation {
+                  upsertUsers(users: [
+                    {email: "a@example.com", firstName: "A", lastName: "Doe", password: "password123", organization: "MyOrg"},
+                    {email: "b@example.com", firstName: "A", lastName: "Doe", password: "password123", organization: "MyOrg"}
+                  ]) { success }
+                }""");
+
+        var updated = execute(loaded,
+                "mutation { updateUser(user: {email: \"b@example.com\", lastName: \"Smith\"}) { firstName lastName organization } }");
+        assertEquals(execute(generated,
+                "mutation { updateUser(user: {email: \"a@example.com\", lastName: \"Smith\"}) { firstName lastName organization } }"),
+                updated);
+        assertEquals(Map.of("data", Map.of("updateUser", Map.of("firstName", "A", "lastName", "Smith", "organization", "MyOrg"))),
+                updated);
+    }
+
+    private static Map<String, Object> execute(GraphQL graphQL, String query) {
+        var result = graphQL.execute(query);
+        assertTrue(result.getErrors().isEmpty(), () -> query + ": " + result.getErrors());
+        return result.toSpecification();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> writeResults(Map<String, Object> result) {
+        return (List<Map<String, Object>>) ((Map<String, Object>) result.get("data")).get("createUsers");
+    }
+
+    private static UserService userService() {
+        var userDao = new InMemoryUserDao(null, Duration.ZERO);
+        var userCache = new UserCache(userDao, new LocalUserCacheInvalidationBus(), 100, Duration.ofMinutes(1), Duration.ofMinutes(1));
+        var changeBus = new LocalUserChangeBus();
+        var userService = new UserServiceImpl(userDao, new UserValidator(), userCache, new UserChangeNotifier(userCache, changeBus),
+                new UserChangeSubscriptions(changeBus, Runnable::run, 16));
+        ReflectionTestUtils.setField(userService, "bulkMaxSize", 10);
+        ReflectionTestUtils.setField(userService, "bulkMaxConcurrency", 2);
+        ReflectionTestUtils.setField(userService, "statsMaxOrganizations", 10);
+        return userService;
+    }
+}
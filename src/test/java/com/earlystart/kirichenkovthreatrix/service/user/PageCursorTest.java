@@ -0,0 +1,29 @@
+package com.earlystart.kirichenkovthreatrix.service.user;
+
+import org.junit.jupiter.api.Test;
+
+import javax.validation.ValidationException;
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PageCursorTest {
+
+    @Test
+    void testDecode_WithEncodedCursor_ShouldRoundTrip() {
+        var cursor = new PageCursor(ByteBuffer.wrap(new byte[]{1, 2, 3}), 7);
+
+        var decoded = PageCursor.decode(cursor.encode());
+
+        assertEquals(7, decoded.skip());
+        assertEquals(ByteBuffer.wrap(new byte[]{1, 2, 3}), decoded.pagingState());
+    }
+
+    @Test
+    void testDecode_WithSkipBeyondMaxPageSize_ShouldThrowValidationException() {
+        var forged = new PageCursor(null, Integer.MAX_VALUE).encode();
+
+        assertThrows(ValidationException.class, () -> PageCursor.decode(forged));
+        assertThrows(ValidationException.class, () -> PageCursor.decode(new PageCursor(null, -1).encode()));
+    }
+}
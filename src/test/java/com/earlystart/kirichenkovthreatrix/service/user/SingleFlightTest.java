@@ -0,0 +1,146 @@
+package com.earlystart.kirichenkovthreatrix.service.user;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+
+    private final SingleFlight<String, String> singleFlight = new SingleFlight<>();
+
+    @Test
+    void testGet_WithConcurrentIdenticalReads_ShouldShareOneRead() throws Exception {
+        var reads = new AtomicInteger();
+        var started = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        var executor = Executors.newFixedThreadPool(8);
+        try {
+            var leader = CompletableFuture.supplyAsync(() -> singleFlight.get("MyOrg", () -> {
+                reads.incrementAndGet();
+                started.countDown();
+                await(release);
+                return "users";
+            }), executor);
+            started.await();
+            List<CompletableFuture<String>> followers = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                followers.add(CompletableFuture.supplyAsync(() -> singleFlight.get("MyOrg", () -> {
+                    reads.incrementAndGet();
+                    return "other";
+                }), executor));
+            }
+            awaitShared(5);
+            release.countDown();
+
+            assertEquals("users", leader.get(5, TimeUnit.SECONDS));
+            for (var follower : followers) {
+                assertEquals("users", follower.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, reads.get());
+            assertEquals("fresh", singleFlight.get("MyOrg", () -> "fresh"));
+        } finally {
+            shutdown(executor);
+        }
+    }
+
+    @Test
+    void testGet_WithFailedRead_ShouldRethrowToCallerAndForgetKey() {
+        var error = assertThrows(IllegalStateException.class,
+                () -> singleFlight.get("MyOrg", () -> {
+                    throw new IllegalStateException("timeout");
+                }));
+
+        assertEquals("timeout", error.getMessage());
+        assertEquals("users", singleFlight.get("MyOrg", () -> "users"));
+    }
+
+    @Test
+    void testGet_WithErrorInSharedRead_ShouldFailWaitingCallers() throws Exception {
+        var started = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        var executor = Executors.newFixedThreadPool(2);
+        try {
+            var leader = CompletableFuture.supplyAsync(() -> singleFlight.get("MyOrg", () -> {
+                started.countDown();
+                await(release);
+                throw new StackOverflowError();
+            }), executor);
+            started.await();
+            var follower = CompletableFuture.supplyAsync(() -> singleFlight.get("MyOrg", () -> "other"), executor);
+            awaitShared(1);
+            release.countDown();
+
+            var error = assertThrows(ExecutionException.class, () -> follower.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(StackOverflowError.class, error.getCause());
+            assertInstanceOf(StackOverflowError.class,
+                    assertThrows(ExecutionException.class, () -> leader.get(5, TimeUnit.SECONDS)).getCause());
+            assertEquals("users", singleFlight.get("MyOrg", () -> "users"));
+        } finally {
+            shutdown(executor);
+        }
+    }
+
+    @Test
+    void testGetAll_ShouldReadOnlyKeysNotInFlight() throws Exception {
+        var started = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        var executor = Executors.newSingleThreadExecutor();
+        try {
+            var leader = CompletableFuture.supplyAsync(() -> singleFlight.get("a@example.com", () -> {
+                started.countDown();
+                await(release);
+                return "A";
+            }), executor);
+            started.await();
+            var follower = CompletableFuture.supplyAsync(() -> singleFlight.getAll(Set.of("a@example.com", "b@example.com"),
+                    missing -> {
+                        assertEquals(Set.of("b@example.com"), missing);
+                        return Map.of("b@example.com", "B");
+                    }));
+            awaitShared(1);
+            release.countDown();
+
+            assertEquals("A", leader.get(5, TimeUnit.SECONDS));
+            assertEquals(Map.of("a@example.com", "A", "b@example.com", "B"), follower.get(5, TimeUnit.SECONDS));
+        } finally {
+            shutdown(executor);
+        }
+    }
+
+    private void awaitShared(long count) throws InterruptedException {
+        var registry = new SimpleMeterRegistry();
+        singleFlight.bindTo(registry, "test");
+        var shared = registry.get(SingleFlight.METRIC).tag("result", "shared").functionCounter();
+        for (int i = 0; i < 500 && shared.count() < count; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(count, (long) shared.count());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void shutdown(ExecutorService executor) throws InterruptedException {
+        executor.shutdownNow();
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,91 @@
+package com.earlystart.kirichenkovthreatrix.service.user;
+
+import com.earlystart.kirichenkovthreatrix.dao.UserDao;
+import com.earlystart.kirichenkovthreatrix.model.User;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class UserCacheTest {
+    private static final String EMAIL = "john@example.com";
+
+    private final UserDao userDao = mock(UserDao.class);
+    private final UserCacheInvalidationBus invalidationBus = new LocalUserCacheInvalidationBus();
+
+    @Test
+    void testGet_WhenCalledTwice_ShouldReadDatabaseOnce() {
+        when(userDao.findById(EMAIL)).thenReturn(Optional.of(user()));
+        var cache = newCache();
+
+        cache.get(EMAIL);
+        var found = cache.get(EMAIL);
+
+        assertEquals(EMAIL, found.getEmail());
+        verify(userDao, times(1)).findById(EMAIL);
+    }
+
+    @Test
+    void testGet_WithUnknownEmail_ShouldCacheMiss() {
+        when(userDao.findById(EMAIL)).thenReturn(Optional.empty());
+        var cache = newCache();
+
+        assertNull(cache.get(EMAIL));
+        assertNull(cache.get(EMAIL));
+
+        verify(userDao, times(1)).findById(EMAIL);
+    }
+
+    @Test
+    void testInvalidate_OnOneInstance_ShouldEvictOtherInstances() {
+        when(userDao.findById(EMAIL)).thenReturn(Optional.empty(), Optional.of(user()));
+        var replica = newCache();
+        var writer = newCache();
+        assertNull(replica.get(EMAIL));
+
+        writer.invalidate(EMAIL);
+
+        assertNotNull(replica.get(EMAIL));
+        verify(userDao, times(2)).findById(EMAIL);
+    }
+
+    @Test
+    void testGetAll_WhenCalledTwice_ShouldReadDatabaseOnce() {
+        when(userDao.findAllById(Set.of(EMAIL))).thenReturn(List.of(user()));
+        var cache = newCache();
+
+        cache.getAll(Set.of(EMAIL));
+        var found = cache.getAll(Set.of(EMAIL));
+
+        assertEquals(Set.of(EMAIL), found.keySet());
+        verify(userDao, times(1)).findAllById(Set.of(EMAIL));
+    }
+
+    @Test
+    void testGetAll_WithInvalidationDuringRead_ShouldNotCacheStaleUser() {
+        var cache = newCache();
+        when(userDao.findAllById(Set.of(EMAIL))).thenAnswer(invocation -> {
+            cache.invalidate(EMAIL);
+            return List.of(user());
+        });
+        when(userDao.findById(EMAIL)).thenReturn(Optional.of(user()));
+
+        assertEquals(Set.of(EMAIL), cache.getAll(Set.of(EMAIL)).keySet());
+        cache.get(EMAIL);
+
+        verify(userDao, times(1)).findById(EMAIL);
+    }
+
+    private UserCache newCache() {
+        return new UserCache(userDao, invalidationBus, 100, Duration.ofMinutes(5), Duration.ofSeconds(30));
+    }
+
+    private static User user() {
+        return User.builder().email(EMAIL).firstName("John").build();
+    }
+}
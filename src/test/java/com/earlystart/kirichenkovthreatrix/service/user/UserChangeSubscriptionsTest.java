@@ -0,0 +1,175 @@
+package com.earlystart.kirichenkovthreatrix.service.user;
+
+import com.earlystart.kirichenkovthreatrix.dao.InMemoryUserDao;
+import com.earlystart.kirichenkovthreatrix.model.User;
+import com.earlystart.kirichenkovthreatrix.model.UserChange;
+import com.earlystart.kirichenkovthreatrix.model.UserChangeType;
+import com.earlystart.kirichenkovthreatrix.service.validator.UserValidator;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserChangeSubscriptionsTest {
+
+    private final UserChangeBus changeBus = new LocalUserChangeBus();
+    private final UserChangeSubscriptions subscriptions = new UserChangeSubscriptions(changeBus, Runnable::run, 2);
+
+    @Test
+    void testSubscribe_WithChangesInOtherOrganization_ShouldOnlyDeliverOwnOrganization() {
+        var subscriber = new RecordingSubscriber();
+        subscriptions.subscribe("MyOrg").subscribe(subscriber);
+        subscriber.request(Long.MAX_VALUE);
+
+        changeBus.publish(change("john@example.com", "MyOrg", "John"));
+        changeBus.publish(change("jane@example.com", "OtherOrg", "Jane"));
+        changeBus.publish(UserChange.deleted("john@example.com", "MyOrg"));
+
+        assertEquals(List.of("john@example.com", "john@example.com"),
+                subscriber.changes.stream().map(UserChange::getEmail).toList());
+        assertEquals(UserChangeType.DELETED, subscriber.changes.get(1).getType());
+    }
+
+    @Test
+    void testSubscribe_WithoutDemand_ShouldCoalesceChangesToSameEmail() {
+        var subscriber = new RecordingSubscriber();
+        subscriptions.subscribe("MyOrg").subscribe(subscriber);
+
+        changeBus.publish(change("john@example.com", "MyOrg", "John"));
+        changeBus.publish(change("jane@example.com", "MyOrg", "Jane"));
+        changeBus.publish(change("john@example.com", "MyOrg", "Johnny"));
+        subscriber.request(10);
+
+        assertEquals(List.of("Johnny", "Jane"),
+                subscriber.changes.stream().map(change -> change.getUser().getFirstName()).toList());
+        assertNull(subscriber.error);
+    }
+
+    @Test
+    void testSubscribe_WithFullBuffer_ShouldFailSubscriberAndUnregister() {
+        var subscriber = new RecordingSubscriber();
+        subscriptions.subscribe("MyOrg").subscribe(subscriber);
+
+        changeBus.publish(change("a@example.com", "MyOrg", "A"));
+        changeBus.publish(change("b@example.com", "MyOrg", "B"));
+        changeBus.publish(change("c@example.com", "MyOrg", "C"));
+
+        assertInstanceOf(IllegalStateException.class, subscriber.error);
+        assertTrue(subscriber.changes.isEmpty());
+        assertEquals(0, subscriptions.size());
+    }
+
+    @Test
+    void testCancel_ShouldStopDeliveryAndUnregister() {
+        var subscriber = new RecordingSubscriber();
+        subscriptions.subscribe("MyOrg").subscribe(subscriber);
+        subscriber.request(Long.MAX_VALUE);
+        assertEquals(1, subscriptions.size());
+
+        subscriber.subscription.cancel();
+        changeBus.publish(change("john@example.com", "MyOrg", "John"));
+
+        assertTrue(subscriber.changes.isEmpty());
+        assertEquals(0, subscriptions.size());
+    }
+
+    @Test
+    void testClose_ShouldCompleteSubscribers() {
+        var subscriber = new RecordingSubscriber();
+        subscriptions.subscribe("MyOrg").subscribe(subscriber);
+
+        subscriptions.close();
+
+        assertTrue(subscriber.completed);
+        assertEquals(0, subscriptions.size());
+    }
+
+    @Test
+    void testCreateOrUpdateUser_WithNewOrganization_ShouldDeliverDeletedToPreviousOrganization() {
+        var userService = userService();
+        userService.createUser(user("john@example.com", "MyOrg"));
+        var previous = new RecordingSubscriber();
+        var next = new RecordingSubscriber();
+        subscriptions.subscribe("MyOrg").subscribe(previous);
+        subscriptions.subscribe("OtherOrg").subscribe(next);
+        previous.request(Long.MAX_VALUE);
+        next.request(Long.MAX_VALUE);
+
+        userService.createOrUpdateUser(user("john@example.com", "OtherOrg"));
+
+        assertEquals(List.of(UserChangeType.DELETED), previous.changes.stream().map(UserChange::getType).toList());
+        assertEquals(List.of(UserChangeType.UPDATED), next.changes.stream().map(UserChange::getType).toList());
+    }
+
+    @Test
+    void testDeleteUser_ShouldDeliverDeletedOnlyForExistingUser() {
+        var userService = userService();
+        userService.createUser(user("john@example.com", "MyOrg"));
+        var subscriber = new RecordingSubscriber();
+        subscriptions.subscribe("MyOrg").subscribe(subscriber);
+        subscriber.request(Long.MAX_VALUE);
+
+        userService.deleteUser("john@example.com");
+        userService.deleteUser("john@example.com");
+        assertFalse(userService.deleteUserIfExists("john@example.com"));
+
+        assertEquals(List.of(UserChange.deleted("john@example.com", "MyOrg")), subscriber.changes);
+    }
+
+    private UserServiceImpl userService() {
+        var userDao = new InMemoryUserDao(null, Duration.ZERO);
+        var userCache = new UserCache(userDao, new LocalUserCacheInvalidationBus(), 100, Duration.ofMinutes(1), Duration.ofMinutes(1));
+        return new UserServiceImpl(userDao, new UserValidator(), userCache, new UserChangeNotifier(userCache, changeBus), subscriptions);
+    }
+
+    private static User user(String email, String organization) {
+        return User.builder()
+                .email(email)
+                .firstName("John")
+                .lastName("Doe")
+                .password("password123")
+                .organization(organization)
+                .build();
+    }
+
+    private static UserChange change(String email, String organization, String firstName) {
+        return UserChange.of(UserChangeType.UPDATED,
+                User.builder().email(email).organization(organization).firstName(firstName).build());
+    }
+
+    private static final class RecordingSubscriber implements Subscriber<UserChange> {
+        private final List<UserChange> changes = new ArrayList<>();
+        private Subscription subscription;
+        private Throwable error;
+        private boolean completed;
+
+        void request(long n) {
+            subscription.request(n);
+        }
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(UserChange change) {
+            changes.add(change);
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            this.error = error;
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.earlystart.kirichenkovthreatrix.service.user;
+
+import com.earlystart.kirichenkovthreatrix.dao.UserDao;
+import com.earlystart.kirichenkovthreatrix.model.User;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class UserDataLoadersTest {
+
+    private final UserDao userDao = mock(UserDao.class);
+    private final UserCache userCache =
+            new UserCache(userDao, new LocalUserCacheInvalidationBus(), 100, Duration.ofMinutes(1), Duration.ofMinutes(1));
+
+    @Test
+    void testLoad_WithRepeatedEmails_ShouldIssueSingleBatchedRead() {
+        var john = User.builder().email("john@example.com").firstName("John").build();
+        var jane = User.builder().email("jane@example.com").firstName("Jane").build();
+        when(userDao.findAllById(any())).thenReturn(List.of(john, jane));
+        var loader = new UserDataLoaders(userCache, 100).newUserByEmailLoader();
+
+        var first = loader.load("john@example.com");
+        var second = loader.load("jane@example.com");
+        var duplicate = loader.load("john@example.com");
+        var missing = loader.load("missing@example.com");
+        loader.dispatchAndJoin();
+
+        assertEquals(john, first.join());
+        assertEquals(jane, second.join());
+        assertSame(first.join(), duplicate.join());
+        assertNull(missing.join());
+        verify(userDao, times(1))
+                .findAllById(eq(Set.of("john@example.com", "jane@example.com", "missing@example.com")));
+    }
+
+    @Test
+    void testLoad_WithMoreKeysThanBatchSize_ShouldSplitBatches() {
+        when(userDao.findAllById(any())).thenReturn(List.of());
+        var loader = new UserDataLoaders(userCache, 2).newUserByEmailLoader();
+
+        loader.load("a@example.com");
+        loader.load("b@example.com");
+        loader.load("c@example.com");
+        loader.dispatchAndJoin();
+
+        verify(userDao, times(2)).findAllById(any());
+    }
+}
@@ -0,0 +1,89 @@
+package com.earlystart.kirichenkovthreatrix.service.user;
+
+import com.earlystart.kirichenkovthreatrix.dao.UserDao;
+import com.earlystart.kirichenkovthreatrix.model.User;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class UserExportServiceTest {
+    private static final int USERS = 50;
+
+    private final UserDao userDao = mock(UserDao.class);
+    private final AtomicReference<CompletableFuture<Void>> scan = new AtomicReference<>();
+    private final UserExportService exportService = new UserExportService(userDao, new ObjectMapper(), 2, 4, 1);
+
+    @AfterEach
+    void tearDown() {
+        exportService.shutdown();
+    }
+
+    @Test
+    void testExportUsers_ShouldWriteEveryUserWithoutPassword() throws IOException {
+        stubScan();
+        var out = new ByteArrayOutputStream();
+
+        exportService.reserve().orElseThrow().writeTo(out);
+
+        var lines = out.toString(StandardCharsets.UTF_8).lines().toList();
+        assertEquals(USERS, lines.size());
+        assertTrue(lines.stream().noneMatch(line -> line.contains("password")), lines.get(0));
+        assertTrue(lines.get(0).contains("\"email\""));
+    }
+
+    @Test
+    void testExportUsers_WhenClientFailsWithFullQueue_ShouldStopScanning() throws Exception {
+        stubScan();
+        var failing = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Connection reset");
+            }
+        };
+
+        assertThrows(IOException.class, () -> exportService.reserve().orElseThrow().writeTo(failing));
+
+        var error = assertThrows(Exception.class, () -> scan.get().get(5, TimeUnit.SECONDS));
+        assertFalse(error instanceof TimeoutException, error.toString());
+    }
+
+    @Test
+    void testReserve_WithExportRunning_ShouldBeEmptyUntilItEnds() throws IOException {
+        stubScan();
+        var export = exportService.reserve().orElseThrow();
+
+        assertTrue(exportService.reserve().isEmpty());
+        export.writeTo(OutputStream.nullOutputStream());
+        assertTrue(exportService.reserve().isPresent());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void stubScan() {
+        var users = IntStream.range(0, USERS)
+                .mapToObj(i -> User.builder().email("user" + i + "@example.com").firstName("John").password("secret").build())
+                .toList();
+        when(userDao.scanUsers(any(), any())).thenAnswer(invocation -> {
+            Executor executor = invocation.getArgument(0);
+            Consumer<User> consumer = invocation.getArgument(1);
+            scan.set(CompletableFuture.runAsync(() -> users.forEach(consumer), executor));
+            return scan.get();
+        });
+    }
+}
@@ -0,0 +1,134 @@
+package com.earlystart.kirichenkovthreatrix.service.user;
+
+import com.earlystart.kirichenkovthreatrix.dao.InMemoryUserDao;
+import com.earlystart.kirichenkovthreatrix.model.User;
+import com.earlystart.kirichenkovthreatrix.model.UserChange;
+import com.earlystart.kirichenkovthreatrix.model.UserChangeType;
+import com.earlystart.kirichenkovthreatrix.service.validator.UserValidator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserImportServiceTest {
+
+    private final InMemoryUserDao userDao = new InMemoryUserDao(null, Duration.ZERO);
+    private final UserCache userCache =
+            new UserCache(userDao, new LocalUserCacheInvalidationBus(), 100, Duration.ofMinutes(1), Duration.ofMinutes(1));
+    private final LocalUserChangeBus changeBus = new LocalUserChangeBus();
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void testImportUsers_WithNdjson_ShouldImportValidRowsAndRejectOthers() throws IOException {
+        var file = write("users.ndjson", """
+                {"email":"a@example.com","firstName":"A","lastName":"Doe","password":"secret","organization":"OrgA"}
+                {"email":"not-an-email","firstName":"B"}
+
+                {"email":"c@example.com",
+                {"email":"d@example.com","firstName":"D","lastName":"Doe","password":"secret"}""");
+
+        var result = importService(DataSize.ofMegabytes(1)).importUsers(file);
+
+        assertEquals(2, result.imported());
+        assertEquals(2, result.rejected());
+        assertEquals("A", userDao.findById("a@example.com").orElseThrow().getFirstName());
+        assertTrue(userDao.existsById("d@example.com"));
+        var rejects = Files.readAllLines(directory.resolve("users.ndjson.rejects"));
+        assertEquals(List.of("2", "4"), rejects.stream().map(line -> line.split("\t")[0]).toList());
+        assertEquals("Wrong email", rejects.get(0).split("\t")[1]);
+    }
+
+    @Test
+    void testImportUsers_WithCsvAcrossChunks_ShouldImportEveryRowOnce() throws IOException {
+        var file = write("users.csv", """
+                email,firstName,lastName,password,Organization\r
+                a@example.com,A,Doe,secret,OrgA\r
+                b@example.com,"Smith, B","The \"\"B\"\"",secret,\r
+                c@example.com,C,Doe,secret,OrgA\r
+                """);
+        var importService = importService(DataSize.ofBytes(48));
+
+        var result = importService.importUsers(file);
+
+        assertEquals(3, result.imported());
+        assertEquals(0, result.rejected());
+        var b = userDao.findById("b@example.com").orElseThrow();
+        assertEquals(new User("b@example.com", "Smith, B", "The \"B\"", "secret", null, null), b);
+        assertEquals(2, userDao.findByOrganizationWithPagination("OrgA", "", 10).size());
+        assertEquals(0, importService.importUsers(file).imported());
+    }
+
+    @Test
+    void testImportUsers_AfterFailure_ShouldResumeFromCheckpoint() throws IOException {
+        var longName = "x".repeat(200);
+        var file = write("users.ndjson", """
+                {"email":"a@example.com","firstName":"A"}
+                {"email":"b@example.com","firstName":"B"}
+                {"email":"c@example.com","firstName":"%s"}
+                """.formatted(longName));
+
+        assertThrows(IOException.class, () -> importService(DataSize.ofBytes(100)).importUsers(file));
+        assertTrue(userDao.existsById("b@example.com"));
+        assertFalse(userDao.existsById("c@example.com"));
+
+        var result = importService(DataSize.ofKilobytes(1)).importUsers(file);
+
+        assertEquals(1, result.imported());
+        assertEquals(longName, userDao.findById("c@example.com").orElseThrow().getFirstName());
+    }
+
+    @Test
+    void testImportUsers_AfterFailure_ShouldNotRepeatRejects() throws IOException {
+        var file = write("users.ndjson", """
+                {"email":"not-an-email"}
+                {"email":"b@example.com","firstName":"B"}
+                {"email":"c@example.com","firstName":"%s"}
+                """.formatted("x".repeat(200)));
+        var rejectsFile = directory.resolve("users.ndjson.rejects");
+
+        assertThrows(IOException.class, () -> importService(DataSize.ofBytes(100)).importUsers(file));
+        var rejects = Files.readString(rejectsFile);
+        Files.writeString(rejectsFile, "3\tinterrupted\t{}\n", StandardOpenOption.APPEND);
+
+        var result = importService(DataSize.ofKilobytes(1)).importUsers(file);
+
+        assertEquals(0, result.rejected());
+        assertEquals(rejects, Files.readString(rejectsFile));
+    }
+
+    @Test
+    void testImportUsers_WithCachedUser_ShouldInvalidateAndPublish() throws IOException {
+        var file = write("users.ndjson", """
+                {"email":"a@example.com","firstName":"A","organization":"OrgA"}
+                """);
+        assertNull(userCache.get("a@example.com"));
+        List<UserChange> changes = new ArrayList<>();
+        changeBus.subscribe(changes::add);
+
+        importService(DataSize.ofMegabytes(1)).importUsers(file);
+
+        assertEquals("A", userCache.get("a@example.com").getFirstName());
+        assertEquals(List.of(UserChangeType.UPDATED), changes.stream().map(UserChange::getType).toList());
+    }
+
+    private UserImportService importService(DataSize chunkSize) {
+        return new UserImportService(userDao, new UserValidator(), new UserChangeNotifier(userCache, changeBus),
+                new ObjectMapper(), chunkSize, 4);
+    }
+
+    private Path write(String name, String content) throws IOException {
+        return Files.writeString(directory.resolve(name), content);
+    }
+}
@@ -0,0 +1,68 @@
+package com.earlystart.kirichenkovthreatrix.service.user;
+
+import com.earlystart.kirichenkovthreatrix.dao.UserColumns;
+import com.earlystart.kirichenkovthreatrix.dao.UserDao;
+import com.earlystart.kirichenkovthreatrix.graphql.UserSchema;
+import com.earlystart.kirichenkovthreatrix.service.validator.UserValidator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import graphql.GraphQL;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.SliceImpl;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class UserSelectionTest {
+
+    private final UserDao userDao = mock(UserDao.class);
+    private final UserService userService = userService(userDao);
+
+    @Test
+    void testGetAllUsers_WithSelectedFields_ShouldReadOnlyTheirColumns() {
+        when(userDao.findAllWithPaging(anyString(), anyInt(), any())).thenReturn(List.of());
+        var graphQL = GraphQL.newGraphQL(UserSchema.generate(userService)).build();
+
+        var result = graphQL.execute("{ getAllUsers(limit: 10) { firstName ...names } } fragment names on User { lastName }");
+
+        assertTrue(result.getErrors().isEmpty(), () -> result.getErrors().toString());
+        verify(userDao).findAllWithPaging("", 10, Set.of("email", "firstname", "lastname"));
+    }
+
+    @Test
+    void testGetUsersByOrganizationConnection_FromSdlSchema_ShouldReadNodeColumns() throws Exception {
+        when(userDao.findByOrganization(anyString(), any(), any())).thenReturn(new SliceImpl<>(List.of()));
+        var graphQL = GraphQL.newGraphQL(UserSchema.load(UserSchema.readSdl(), userService, new ObjectMapper())).build();
+
+        var result = graphQL.execute("""
+                { getUsersByOrganizationConnection(organization: "MyOrg", first: 5) {
+                    edges { cursor node { permissions } }
+                    pageInfo { hasNextPage }
+                } }""");
+
+        assertTrue(result.getErrors().isEmpty(), () -> result.getErrors().toString());
+        verify(userDao).findByOrganization(eq("MyOrg"), any(), eq(Set.of("email", "permissions")));
+    }
+
+    @Test
+    void testColumns_ShouldKeepTableOrderAndRejectUnknownColumns() {
+        assertEquals(List.of("email", "firstname", "permissions"),
+                List.copyOf(UserColumns.of(List.of("permissions", "firstname"))));
+        assertSame(UserColumns.ALL, UserColumns.of(UserColumns.ALL));
+        assertThrows(IllegalArgumentException.class, () -> UserColumns.of(List.of("email; DROP TABLE user")));
+    }
+
+    private static UserService userService(UserDao userDao) {
+        var userCache = new UserCache(userDao, new LocalUserCacheInvalidationBus(), 100, Duration.ofMinutes(1), Duration.ofMinutes(1));
+        var changeBus = new LocalUserChangeBus();
+        return new UserServiceImpl(userDao, new UserValidator(), userCache, new UserChangeNotifier(userCache, changeBus),
+                new UserChangeSubscriptions(changeBus, Runnable::run, 16));
+    }
+}